@@ -82,6 +82,12 @@ public class DependsCommand {
 	private boolean duckTypingDeduce = true;
 	@Option(names = {"--output-self-deps"}, description = "Output self dependencies")
 	private boolean outputSelfDependencies = false;
+	@Option(names = {"--detail-heap-budget"}, description = "With --detail, spill details to disk when they use more heap than the budget (in MB, 0 means never spill)")
+	private long detailHeapBudget = 0;
+	@Option(names = {"--expression-heap-budget"}, description = "Keep parsed expressions in heap up to the budget, and spill the coldest ones to disk beyond it (in MB, 0 means always spill, default is a quarter of the max heap)")
+	private long expressionHeapBudget = -1;
+	@Option(names = {"--stream-matrix"}, description = "Stream relations into dependency matrices directly without keeping them on entities (lower memory)")
+	private boolean streamMatrix = false;
 	@Option(names = {"-h","--help"}, usageHelp = true, description = "display this help and exit")
     boolean help;
 
@@ -170,4 +176,14 @@ public class DependsCommand {
 	public boolean isDuckTypingDeduce() {
 		return this.duckTypingDeduce;
 	}
+	public boolean isStreamMatrix() {
+		return streamMatrix;
+	}
+	public long getDetailHeapBudget() {
+		return detailHeapBudget;
+	}
+
+	public long getExpressionHeapBudget() {
+		return expressionHeapBudget;
+	}
 }
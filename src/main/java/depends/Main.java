@@ -26,6 +26,7 @@ package depends;
 
 import depends.addons.DV8MappingFileBuilder;
 import depends.deptypes.DependencyType;
+import depends.deptypes.DependencyTypeRegistry;
 import depends.entity.*;
 import depends.entity.repo.EntityRepo;
 import depends.extractor.AbstractLangProcessor;
@@ -36,8 +37,9 @@ import depends.format.detail.UnsolvedSymbolDumper;
 import depends.generator.*;
 import depends.matrix.core.DependencyMatrix;
 import depends.relations.IBindingResolver;
-import depends.relations.Relation;
 import depends.relations.RelationCounter;
+import depends.relations.RelationSink;
+import depends.utils.PathCache;
 import multilang.depends.util.file.FileUtil;
 import multilang.depends.util.file.FolderCollector;
 import multilang.depends.util.file.TemporaryFile;
@@ -117,18 +119,50 @@ public class Main {
 		IBindingResolver bindingResolver = langProcessor.createBindingResolver(args.isOutputExternalDependencies(), args.isDuckTypingDeduce());
 
 		long startTime = System.currentTimeMillis();
+		long expressionHeapBudget = args.getExpressionHeapBudget();
+		ExpressionStore.getInstance().setHeapBudget(expressionHeapBudget < 0 ? -1 : expressionHeapBudget * 1024 * 1024);
 		//step1: build data
 		EntityRepo entityRepo = langProcessor.buildDependencies(inputDir, includeDir, bindingResolver);
-		new RelationCounter(entityRepo, langProcessor, bindingResolver).computeRelations();
-		System.out.println("Dependency done....");
-		logDependencyInfo(entityRepo);
-
-		//step2: generate dependencies matrix
 		List<DependencyGenerator> dependencyGenerators = getDependencyGenerators(args, inputDir);
-		for (DependencyGenerator dependencyGenerator : dependencyGenerators) {
-			DependencyMatrix matrix = dependencyGenerator.identifyDependencies(entityRepo, args.getTypeFilter(), args.isShowLanguage());
-			DependencyDumper output = new DependencyDumper(matrix);
-			output.outputResult(outputName + "-" + dependencyGenerator.getType(), outputDir, outputFormat);
+		Map<String, Integer> dependencyCount = DependencyType.allDependencies().stream()
+				.collect(Collectors.toMap(key -> key, value -> 0));
+		if (args.isStreamMatrix()) {
+			// relations go into the matrices directly, and are never kept on entities
+			List<RelationSink> sinks = new ArrayList<>();
+			List<DependencyGenerator.MatrixBuilder> builders = new ArrayList<>();
+			for (DependencyGenerator dependencyGenerator : dependencyGenerators) {
+				builders.add(dependencyGenerator.createMatrixBuilder(entityRepo, args.getTypeFilter(), args.isShowLanguage()));
+			}
+			sinks.addAll(builders);
+			sinks.add((from, to, type, line, possible) -> countDependency(dependencyCount, type));
+			new RelationCounter(entityRepo, langProcessor, bindingResolver, RelationSink.of(sinks)).computeRelations();
+			System.out.println("Dependency done....");
+			logDependencyInfo(entityRepo, dependencyCount);
+
+			//step2: generate dependencies matrix
+			for (int i = 0; i < dependencyGenerators.size(); i++) {
+				DependencyGenerator dependencyGenerator = dependencyGenerators.get(i);
+				DependencyMatrix matrix = dependencyGenerator.identifyDependencies(builders.get(i));
+				DependencyDumper output = new DependencyDumper(matrix);
+				output.outputResult(outputName + "-" + dependencyGenerator.getType(), outputDir, outputFormat);
+				matrix.closeSpilledDetails();
+			}
+		} else {
+			new RelationCounter(entityRepo, langProcessor, bindingResolver).computeRelations();
+			System.out.println("Dependency done....");
+			Iterator<Entity> entityIterator = entityRepo.entityIterator();
+			while (entityIterator.hasNext()) {
+				entityIterator.next().forEachRelation((to, type, line, possible) -> countDependency(dependencyCount, type));
+			}
+			logDependencyInfo(entityRepo, dependencyCount);
+
+			//step2: generate dependencies matrix
+			for (DependencyGenerator dependencyGenerator : dependencyGenerators) {
+				DependencyMatrix matrix = dependencyGenerator.identifyDependencies(entityRepo, args.getTypeFilter(), args.isShowLanguage());
+				DependencyDumper output = new DependencyDumper(matrix);
+				output.outputResult(outputName + "-" + dependencyGenerator.getType(), outputDir, outputFormat);
+				matrix.closeSpilledDetails();
+			}
 		}
 
 		if (args.isOutputExternalDependencies()) {
@@ -138,7 +172,10 @@ public class Main {
 			unsolvedSymbolDumper.output();
 		}
 		long endTime = System.currentTimeMillis();
+		logger.info(ExpressionStore.getInstance().getStatistics());
+		ExpressionStore.getInstance().clear();
 		TemporaryFile.getInstance().delete();
+		PathCache.clear();
 		CacheManager.create().shutdown();
 		System.out.println("Consumed time: " + (float) ((endTime - startTime) / 1000.00) + " s,  or "
 				+ (float) ((endTime - startTime) / 60000.00) + " min.");
@@ -148,15 +185,20 @@ public class Main {
 		}
 	}
 
-	private static void logDependencyInfo(EntityRepo entityRepo) {
+	private static void countDependency(Map<String, Integer> dependencyCount, int typeCode) {
+		String relationType = DependencyTypeRegistry.nameOf(typeCode);
+		if (dependencyCount.containsKey(relationType)) {
+			dependencyCount.put(relationType, dependencyCount.get(relationType) + 1);
+		}
+	}
+
+	private static void logDependencyInfo(EntityRepo entityRepo, Map<String, Integer> dependencyCount) {
 		int packageCount = 0;
 		int fileCount = 0;
 		int methodCount = 0;
 		int classCount = 0;
 		int varCount = 0;
 		Iterator<Entity> entityIterator = entityRepo.entityIterator();
-		ArrayList<String> strings = DependencyType.allDependencies();
-		Map<String, Integer> dependencyCount = strings.stream().collect(Collectors.toMap(key -> key, value -> 0));
 		while (entityIterator.hasNext()) {
 			Entity entity = entityIterator.next();
 			if (entity instanceof PackageEntity) {
@@ -170,13 +212,6 @@ public class Main {
 			} else if (entity instanceof VarEntity) {
 				varCount++;
 			}
-			ArrayList<Relation> relations = entity.getRelations();
-			for (Relation relation : relations) {
-				String relationType = relation.getType();
-				if (dependencyCount.containsKey(relationType)) {
-					dependencyCount.put(relationType, dependencyCount.get(relationType) + 1);
-				}
-			}
 		}
 		logger.info("Packages: {}", packageCount);
 		logger.info("Files: {}", fileCount);
@@ -232,6 +267,7 @@ public class Main {
 			}
 			if (app.isDetail()) {
 				dependencyGenerator.setGenerateDetail(true);
+				dependencyGenerator.setDetailHeapBudget(app.getDetailHeapBudget() * 1024 * 1024);
 			}
 			dependencyGenerator.setOutputSelfDependencies(app.isOutputSelfDependencies());
 			dependencyGenerator.setFilenameRewritter(filenameWritter);
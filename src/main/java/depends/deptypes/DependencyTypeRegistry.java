@@ -0,0 +1,105 @@
+package depends.deptypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static depends.deptypes.DependencyType.POSSIBLE_DEP;
+
+/**
+ * Maps each combination of relation, languages and possible flag to a small int code.<br>
+ * 将关系类型、语言与possible标记的组合映射为整数编码
+ * <p>
+ * Dependencies are stored and compared by the codes.
+ * The names (e.g. {@code "Java Call Kotlin(possible)"}) are only built by {@link #nameOf(int)}
+ * when the output is written.
+ */
+public final class DependencyTypeRegistry {
+	private record Key(String fromLanguage, String relation, String toLanguage, boolean possible) {
+	}
+
+	private static final HashMap<Key, Integer> codes = new HashMap<>();
+	private static final ArrayList<Key> keys = new ArrayList<>();
+	private static final ArrayList<String> names = new ArrayList<>();
+	/* code of the relation without languages and possible flag, indexed by code */
+	private static int[] relationCodes = new int[64];
+	/* code of the possible variant, indexed by code, 0 if not computed yet */
+	private static int[] possibleCodes = new int[64];
+
+	private DependencyTypeRegistry() {
+	}
+
+	/**
+	 * @return the code of the relation, without languages and not possible
+	 */
+	public static int code(String relation) {
+		return code(null, relation, null, false);
+	}
+
+	public static synchronized int code(String fromLanguage, String relation, String toLanguage, boolean possible) {
+		Key key = new Key(fromLanguage, relation, toLanguage, possible);
+		Integer code = codes.get(key);
+		if (code != null) return code;
+		code = keys.size();
+		keys.add(key);
+		names.add(buildName(key));
+		codes.put(key, code);
+		int relationCode = (fromLanguage == null && toLanguage == null && !possible) ? code : code(relation);
+		if (code >= relationCodes.length) {
+			relationCodes = Arrays.copyOf(relationCodes, Math.max(code + 1, relationCodes.length * 2));
+			possibleCodes = Arrays.copyOf(possibleCodes, relationCodes.length);
+		}
+		relationCodes[code] = relationCode;
+		return code;
+	}
+
+	/**
+	 * @return the code of the same dependency which is possible
+	 */
+	public static synchronized int withPossible(int code) {
+		Key key = keys.get(code);
+		if (key.possible) return code;
+		if (possibleCodes[code] == 0) {
+			possibleCodes[code] = code(key.fromLanguage, key.relation, key.toLanguage, true);
+		}
+		return possibleCodes[code];
+	}
+
+	/**
+	 * @return the code of the same dependency between the given languages
+	 */
+	public static synchronized int withLanguages(int code, String fromLanguage, String toLanguage) {
+		Key key = keys.get(code);
+		return code(fromLanguage, key.relation, toLanguage, key.possible);
+	}
+
+	/**
+	 * @return the code of the relation without languages and possible flag
+	 */
+	public static synchronized int relationCodeOf(int code) {
+		return relationCodes[code];
+	}
+
+	public static synchronized String relationOf(int code) {
+		return keys.get(code).relation;
+	}
+
+	public static synchronized boolean isPossible(int code) {
+		return keys.get(code).possible;
+	}
+
+	/**
+	 * @return the name used in output
+	 */
+	public static synchronized String nameOf(int code) {
+		return names.get(code);
+	}
+
+	private static String buildName(Key key) {
+		String flag = key.possible ? POSSIBLE_DEP : "";
+		if (key.fromLanguage == null && key.toLanguage == null) {
+			return key.relation + flag;
+		}
+		return key.fromLanguage + " " + key.relation + " " + key.toLanguage + flag;
+	}
+}
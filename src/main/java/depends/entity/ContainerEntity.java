@@ -31,7 +31,6 @@ import depends.entity.repo.EntityRepo;
 import depends.relations.IBindingResolver;
 import depends.relations.Relation;
 import depends.utils.GraphUtils;
-import multilang.depends.util.file.TemporaryFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -40,7 +39,9 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * ContainerEntity for example file, class, method, etc. they could contain
@@ -105,11 +106,90 @@ public abstract class ContainerEntity extends DecoratedEntity implements IExtens
 		return this.functions;
 	}
 
+	/**
+	 * Expressions by their keys. Parse tree contexts used as keys are replaced by {@link ExpressionKey},
+	 * so the map does not keep the parse trees reachable. All methods taking a key convert it;
+	 * the key set and entry set views hold the converted keys.
+	 */
+	private static class ExpressionMap extends HashMap<Object, Expression> {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Expression get(Object key) {
+			return super.get(ExpressionKey.keyOf(key));
+		}
+
+		@Override
+		public Expression getOrDefault(Object key, Expression defaultValue) {
+			return super.getOrDefault(ExpressionKey.keyOf(key), defaultValue);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return super.containsKey(ExpressionKey.keyOf(key));
+		}
+
+		@Override
+		public Expression put(Object key, Expression value) {
+			return super.put(ExpressionKey.keyOf(key), value);
+		}
+
+		@Override
+		public Expression putIfAbsent(Object key, Expression value) {
+			return super.putIfAbsent(ExpressionKey.keyOf(key), value);
+		}
+
+		@Override
+		public Expression remove(Object key) {
+			return super.remove(ExpressionKey.keyOf(key));
+		}
+
+		@Override
+		public void putAll(Map<?, ? extends Expression> map) {
+			map.forEach(this::put);
+		}
+
+		@Override
+		public Expression computeIfAbsent(Object key, Function<? super Object, ? extends Expression> mappingFunction) {
+			return super.computeIfAbsent(ExpressionKey.keyOf(key), mappingFunction);
+		}
+
+		@Override
+		public Expression computeIfPresent(Object key, BiFunction<? super Object, ? super Expression, ? extends Expression> remappingFunction) {
+			return super.computeIfPresent(ExpressionKey.keyOf(key), remappingFunction);
+		}
+
+		@Override
+		public Expression compute(Object key, BiFunction<? super Object, ? super Expression, ? extends Expression> remappingFunction) {
+			return super.compute(ExpressionKey.keyOf(key), remappingFunction);
+		}
+
+		@Override
+		public Expression merge(Object key, Expression value, BiFunction<? super Expression, ? super Expression, ? extends Expression> remappingFunction) {
+			return super.merge(ExpressionKey.keyOf(key), value, remappingFunction);
+		}
+
+		@Override
+		public Expression replace(Object key, Expression value) {
+			return super.replace(ExpressionKey.keyOf(key), value);
+		}
+
+		@Override
+		public boolean replace(Object key, Expression oldValue, Expression newValue) {
+			return super.replace(ExpressionKey.keyOf(key), oldValue, newValue);
+		}
+
+		@Override
+		public boolean remove(Object key, Object value) {
+			return super.remove(ExpressionKey.keyOf(key), value);
+		}
+	}
+
 	public HashMap<Object, Expression> expressions() {
 		if (expressionWeakReference == null)
-			expressionWeakReference = new WeakReference<>(new HashMap<>());
+			expressionWeakReference = new WeakReference<>(new ExpressionMap());
 		HashMap<Object, Expression> r = expressionWeakReference.get();
-		if (r == null) return new HashMap<>();
+		if (r == null) return new ExpressionMap();
 		return r;
 	}
 
@@ -186,7 +266,7 @@ public abstract class ContainerEntity extends DecoratedEntity implements IExtens
 
 		for (Expression expression : expressionList) {
 			expressionGraph.addNode(expression);
-			for (Expression resolveFirst : expression.getResolveFirstList()) {
+			for (Expression resolveFirst : expression.resolveFirstList()) {
 				if (expression != resolveFirst)
 					expressionGraph.putEdge(resolveFirst, expression);
 			}
@@ -219,13 +299,13 @@ public abstract class ContainerEntity extends DecoratedEntity implements IExtens
 		if (expressionList == null) return;
 		this.expressions().clear();
 		this.expressionWeakReference.clear();
-		cacheExpressionListToFile();
-		this.expressionList.clear();
-		this.expressionList = null;
+		if (expressionCount > 0)
+			ExpressionStore.getInstance().put(this, this.expressionList);
 		this.expressionList = new ArrayList<>();
 	}
 
 	public void clearExpressions() {
+		ExpressionStore.getInstance().discard(this);
 		if (expressionWeakReference == null) return;
 		if (expressionList == null) return;
 		this.expressions().clear();
@@ -236,32 +316,20 @@ public abstract class ContainerEntity extends DecoratedEntity implements IExtens
 		this.expressionUseList = null;
 	}
 
-	private void cacheExpressionListToFile() {
-		if (expressionCount == 0) return;
-		try {
-			FileOutputStream fileOut = new FileOutputStream(TemporaryFile.getInstance().exprPath(this.id));
-			ObjectOutputStream out = new ObjectOutputStream(fileOut);
-			out.writeObject(this.expressionList);
-			out.close();
-			fileOut.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	@SuppressWarnings("unchecked")
 	public void reloadExpression(EntityRepo repo) {
 		if (expressionCount == 0) return;
+		ArrayList<Expression> kept = ExpressionStore.getInstance().get(this);
+		if (kept != null) {
+			// kept in heap, the transient fields are still there
+			expressionList = kept;
+			return;
+		}
 		try {
-			FileInputStream fileIn = new FileInputStream(TemporaryFile.getInstance().exprPath(this.id));
-			ObjectInputStream in = new ObjectInputStream(fileIn);
-			expressionList = (ArrayList<Expression>) in.readObject();
+			expressionList = ExpressionStore.getInstance().read(this.id);
 			if (expressionList == null) expressionList = new ArrayList<>();
 			for (Expression expr : expressionList) {
 				expr.reload(repo, expressionList);
 			}
-			in.close();
-			fileIn.close();
 		} catch (IOException | ClassNotFoundException i) {
 			i.printStackTrace();
 		}
@@ -361,18 +429,22 @@ public abstract class ContainerEntity extends DecoratedEntity implements IExtens
 	public FunctionEntity lookupExtensionFunctionInVisibleScope(
 			@NotNull TypeEntity type, @NotNull GenericName genericName,
 			boolean searchPackage
+	) {
+		return lookupExtensionFunctionInVisibleScope(type, genericName, searchPackage, null);
+	}
+
+	@Nullable
+	@Override
+	public FunctionEntity lookupExtensionFunctionInVisibleScope(
+			@NotNull TypeEntity type, @NotNull GenericName genericName,
+			boolean searchPackage, @Nullable ExtensionFunctionIndex index
 	) {
 		ArrayList<FunctionEntity> currentTypeFunc = new ArrayList<>();
 		ArrayList<FunctionEntity> nonTypeFunc = new ArrayList<>();
 		Entity ancestorOfType = getAncestorOfType(FileEntity.class);
 		Consumer<Entity> consumer = (entity) -> {
 			if (!(entity instanceof FunctionEntity function)) return;
-			if (!function.isExtension()) return;
-			ArrayList<VarEntity> parameters = function.getParameters();
-			if (parameters == null || parameters.isEmpty()) return;
-			VarEntity firstParameter = parameters.get(0);
-			if (firstParameter == null) return;
-			TypeEntity parameterType = firstParameter.getType();
+			TypeEntity parameterType = ExtensionFunctionIndex.receiverTypeOf(function);
 			if (parameterType == null) return;
 			if (parameterType.equals(type)) {
 				if (!currentTypeFunc.contains(function)) {
@@ -388,7 +460,11 @@ public abstract class ContainerEntity extends DecoratedEntity implements IExtens
 				consumer.accept(entity);
 			}
 		}
-		processVisibleEntitiesThatNameOf(this, genericName, true, consumer);
+		if (index != null) {
+			index.processVisibleExtensions(this, type, genericName, true, consumer);
+		} else {
+			processVisibleEntitiesThatNameOf(this, genericName, true, consumer);
+		}
 		if (!currentTypeFunc.isEmpty()) {
 			return getNearest(currentTypeFunc);
 		}
@@ -501,20 +577,29 @@ public abstract class ContainerEntity extends DecoratedEntity implements IExtens
 	HashMap<String, Set<Expression>> expressionUseList = null;
 
 	public void addRelation(Expression expression, Relation relation) {
+		if (recordExpressionRelation(expression, relation))
+			super.addRelation(relation);
+	}
+
+	/**
+	 * Record the expression of the relation.
+	 * @return false if an expression linked with the given one already has the same relation
+	 */
+	public boolean recordExpressionRelation(Expression expression, Relation relation) {
 		String key = relation.getEntity().qualifiedName + relation.getType();
 		if (this.expressionUseList == null)
 			expressionUseList = new HashMap<>();
 		if (expressionUseList.containsKey(key)) {
 			Set<Expression> expressions = expressionUseList.get(key);
 			for (Expression expr : expressions) {
-				if (linkedExpr(expr, expression)) return;
+				if (linkedExpr(expr, expression)) return false;
 			}
 		} else {
 			expressionUseList.put(key, new HashSet<>());
 		}
 
 		expressionUseList.get(key).add(expression);
-		super.addRelation(relation);
+		return true;
 	}
 
 	private boolean linkedExpr(Expression a, Expression b) {
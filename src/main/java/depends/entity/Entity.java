@@ -24,8 +24,10 @@ SOFTWARE.
 
 package depends.entity;
 
+import depends.deptypes.DependencyTypeRegistry;
 import depends.relations.IBindingResolver;
 import depends.relations.Relation;
+import depends.relations.RelationStore;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -46,12 +48,36 @@ public abstract class Entity {
 	private MultiDeclareEntities mutliDeclare = null;
 	private Set<Entity> children;
 	ArrayList<Relation> relations;
+	/**
+	 * Where the relations are kept once the entity is added to a repo
+	 */
+	private RelationStore relationStore;
 	private Entity actualReferTo = null;
 	private boolean inScope = true;
-	protected HashMap<String, Entity> visibleNames = new HashMap<>();
+	/**
+	 * Names visible in the entity, allocated by {@link #visibleNames()} when a name other than its own is added.
+	 * Until then, null means only the raw name and qualified name of the entity itself are visible,
+	 * and {@link #NO_NAMES} means none is (an entity built without names).
+	 */
+	private Map<String, Entity> visibleNames;
+	private static final Map<String, Entity> NO_NAMES = Collections.emptyMap();
 	private Location location = new Location();
+	/**
+	 * The nearest file, type and function ancestors (including the entity itself).
+	 * An entity which is none of them shares the record of its parent, so leaves cost one reference.
+	 */
+	private record Ancestors(Entity file, Entity type, Entity function) {
+	}
+
+	private static final Ancestors NO_ANCESTORS = new Ancestors(null, null, null);
+	/**
+	 * Cached by {@link #getAncestorOfType(Class)}, null if not computed yet.
+	 * If an entity has it, so do all its ancestors; {@link #setParent(Entity)} clears it in the moved subtree.
+	 */
+	private Ancestors ancestors;
 
 	public Entity() {
+		visibleNames = NO_NAMES;
 	}
 
 	public Entity(GenericName rawName, Entity parent, Integer id) {
@@ -62,16 +88,41 @@ public abstract class Entity {
 		if (parent != null)
 			parent.addChild(this);
 		deduceQualifiedName();
-		visibleNames.put(rawName.getName(), this);
-		visibleNames.put(qualifiedName, this);
 	}
 
 	private Set<Entity> children() {
 		if (children == null)
-			children = new HashSet<>();
+			children = new HashSet<>(capacityOf(expectedChildCount()));
 		return children;
 	}
 
+	/**
+	 * The expected number of children, used to size the children and visible names when they are allocated.
+	 * Entities that never have children do not allocate them at all.
+	 */
+	protected int expectedChildCount() {
+		return 4;
+	}
+
+	private static int capacityOf(int expectedSize) {
+		return (int) (expectedSize / 0.75f) + 1;
+	}
+
+	/**
+	 * @return the mutable visible names, allocated with the own names of the entity on first call
+	 */
+	protected Map<String, Entity> visibleNames() {
+		if (visibleNames == null || visibleNames == NO_NAMES) {
+			Map<String, Entity> names = new HashMap<>(capacityOf(expectedChildCount() * 2 + 2));
+			if (visibleNames == null) {
+				names.put(rawName.getName(), this);
+				names.put(qualifiedName, this);
+			}
+			visibleNames = names;
+		}
+		return visibleNames;
+	}
+
 	/**
 	 * Rule 1: if it start with '.' , then the name is equal to raw name
 	 * Rule 2: if parent not exists, the name is equal to raw name
@@ -110,22 +161,52 @@ public abstract class Entity {
 	}
 
 	public void addRelation(Relation relation) {
+		if (relation.getEntity() == null) return;
+		if (relationStore != null && id >= 0) {
+			relationStore.add(id, relation);
+			return;
+		}
 		if (relations == null)
 			relations = new ArrayList<>();
-		if (relation.getEntity() == null) return;
 		relations.add(relation);
 	}
 
+	/**
+	 * @return the relations of the entity. If the relations are kept in a {@link RelationStore},
+	 * they are materialized on each call, so prefer {@link #forEachRelation(RelationStore.RelationVisitor)}
+	 */
 	public ArrayList<Relation> getRelations() {
+		if (relationStore != null && id >= 0)
+			return relationStore.relationsOf(id);
 		if (relations == null)
 			return new ArrayList<>();
 		return relations;
 	}
 
+	/**
+	 * Visit the relations of the entity without materializing them
+	 */
+	public void forEachRelation(RelationStore.RelationVisitor visitor) {
+		if (relationStore != null && id >= 0) {
+			relationStore.forEachRelationOf(id, visitor);
+			return;
+		}
+		if (relations == null) return;
+		for (Relation relation : relations) {
+			visitor.visit(relation.getEntity(), DependencyTypeRegistry.code(relation.getType()),
+					relation.fromLine(), relation.possible());
+		}
+	}
+
+	public void setRelationStore(RelationStore relationStore) {
+		this.relationStore = relationStore;
+	}
+
 	public void addChild(Entity child) {
 		children().add(child);
-		visibleNames.put(child.getRawName().getName(), child);
-		visibleNames.put(child.getQualifiedName(), child);
+		Map<String, Entity> names = visibleNames();
+		names.put(child.getRawName().getName(), child);
+		names.put(child.getQualifiedName(), child);
 	}
 
 	public Entity getParent() {
@@ -133,20 +214,38 @@ public abstract class Entity {
 	}
 
 	public void setParent(Entity parent) {
+		if (this.parent == parent) return;
 		this.parent = parent;
+		clearAncestors();
+	}
+
+	private void clearAncestors() {
+		Deque<Entity> subtree = new ArrayDeque<>();
+		subtree.push(this);
+		while (!subtree.isEmpty()) {
+			Entity entity = subtree.pop();
+			if (entity.ancestors == null) continue;
+			entity.ancestors = null;
+			for (Entity child : entity.getChildren()) {
+				subtree.push(child);
+			}
+		}
 	}
 
 	public Collection<Entity> getChildren() {
 		if (children == null)
-			return new HashSet<>();
+			return Collections.emptySet();
 		return children;
 	}
 
 	public void setQualifiedName(String qualifiedName) {
+		// the visible names keep the names the entity is built with
+		if (visibleNames == null) visibleNames();
 		this.qualifiedName = qualifiedName;
 	}
 
 	public void setRawName(GenericName rawName) {
+		if (visibleNames == null) visibleNames();
 		this.rawName = rawName;
 		deduceQualifiedName();
 	}
@@ -171,6 +270,26 @@ public abstract class Entity {
 	 * @return null (if not exist) or the type
 	 */
 	public Entity getAncestorOfType(@SuppressWarnings("rawtypes") Class classType) {
+		if (classType == FileEntity.class) return ancestors().file;
+		if (classType == TypeEntity.class) return ancestors().type;
+		if (classType == FunctionEntity.class) return ancestors().function;
+		return findAncestorOfType(classType);
+	}
+
+	private Ancestors ancestors() {
+		if (ancestors == null) {
+			Entity parent = getParent();
+			Ancestors above = parent == null ? NO_ANCESTORS : parent.ancestors();
+			Class<?> entityClass = getClass();
+			if (entityClass == FileEntity.class) above = new Ancestors(this, above.type, above.function);
+			else if (entityClass == TypeEntity.class) above = new Ancestors(above.file, this, above.function);
+			else if (entityClass == FunctionEntity.class) above = new Ancestors(above.file, above.type, this);
+			ancestors = above;
+		}
+		return ancestors;
+	}
+
+	private Entity findAncestorOfType(@SuppressWarnings("rawtypes") Class classType) {
 		Entity fromEntity = this;
 		while (fromEntity != null) {
 			if (fromEntity.getClass().equals(classType))
@@ -274,7 +393,7 @@ public abstract class Entity {
 
 	public void setInScope(boolean value) {
 		this.inScope = value;
-		children().forEach(child -> child.setInScope(value));
+		getChildren().forEach(child -> child.setInScope(value));
 	}
 
 	public boolean inScope() {
@@ -284,6 +403,11 @@ public abstract class Entity {
 	public Entity getByName(String name, HashSet<Entity> searched) {
 		if (searched.contains(this)) return null;
 		searched.add(this);
+		if (visibleNames == null) {
+			if (Objects.equals(name, rawName.getName()) || Objects.equals(name, qualifiedName))
+				return this;
+			return null;
+		}
 		return visibleNames.get(name);
 	}
 
@@ -35,38 +35,54 @@ import java.util.*;
 
 /**
  * Expression
+ * <p>
+ * To keep the cached expressions small, the boolean properties are packed in one bit field,
+ * the referred ids are primitive ints with {@link #NO_ID} for none, and the lists which are
+ * empty for most expressions are allocated on first use.<br>
+ * 为减少缓存表达式的内存占用，布尔属性压缩在一个位域中，引用的id使用基本类型int，
+ * 大多数表达式为空的列表在首次使用时才分配
  */
 public class Expression implements Serializable {
-	private static final long serialVersionUID = 7L;
+	private static final long serialVersionUID = 8L;
+
+	/** the id of no entity or expression. Entity ids may be negative (e.g. {@link TypeEntity#buildInType}) */
+	private static final int NO_ID = Integer.MIN_VALUE;
+
+	private static final int SET = 1;                              // is a set relation from right to leftHand
+	private static final int DOT = 1 << 1;                         // is a dot expression, will decuce variable tfype left to right
+	private static final int CALL = 1 << 2;
+	private static final int LOGIC = 1 << 3;
+	private static final int CREATE = 1 << 4;
+	private static final int CAST = 1 << 5;
+	private static final int THROW = 1 << 6;
+	private static final int PARAMETER = 1 << 7;
+	private static final int STATEMENT = 1 << 8;                   //statement is only used for return type calcuation in some langs such as ruby
+	//they will not be treat as real expressions in case of relation calculation
+	private static final int DERIVE_TYPE_FROM_CHILD = 1 << 9;
+	/**
+	 * Confirm through parameter matching that this expression
+	 * must have called the function {@link #referredEntity} refers to
+	 */
+	private static final int EXPLICIT_CALL_REFERRED_ENTITY = 1 << 10;
 
 	public Integer id;
 	private String text;                // not only for debug purpose but also for kotlin expression call deduce
 	private GenericName rawType;        // the raw type name
 	private GenericName identifier;     // the varName, or method name, etc.
-	private boolean isSet = false;       // is a set relation from right to leftHand
-	private boolean isDot = false;       // is a dot expression, will decuce variable tfype left to right
-	private boolean isCall = false;
-	private boolean isLogic = false;
-	private boolean isCreate = false;
-	private boolean isCast = false;
-	private boolean isThrow = false;
-	private boolean isParameter = false;
-	private boolean isStatement = false; //statement is only used for return type calcuation in some langs such as ruby
-	//they will not be treat as real expressions in case of relation calculation
-	protected boolean deriveTypeFromChild = true;
+	private int flags = DERIVE_TYPE_FROM_CHILD;
 
-	protected Integer deduceTypeBasedId; //by default, parent expression type determined by most left child
+	private int deduceTypeBasedId = NO_ID; //by default, parent expression type determined by most left child
 
-	private Integer parentId = -1;
+	private int parentId = NO_ID;
 	private transient Expression parent;
 
-	private transient List<VarEntity> deducedTypeVars = new ArrayList<>();
-	private List<Integer> deducedTypeVarsId = new ArrayList<>();
+	private transient List<VarEntity> deducedTypeVars;
+	private List<Integer> deducedTypeVarsId;
 
-	private transient List<FunctionEntity> deducedTypeFunctions = new ArrayList<>();
-	private List<Integer> deducedTypeFunctionsId = new ArrayList<>();
+	private transient List<FunctionEntity> deducedTypeFunctions;
+	private List<Integer> deducedTypeFunctionsId;
 
-	private Integer referredEntityId;
+	private int referredEntityId = NO_ID;
 	private transient Entity referredEntity;
 
 	private transient TypeEntity type; // the type we care - for relation calculation. 
@@ -74,7 +90,7 @@ public class Expression implements Serializable {
 	//for leaf, it equals to referredEntity.getType. otherwise, depends on child's type strategy
 
 	private transient ContainerEntity container;
-	private Integer containerId;
+	private int containerId = NO_ID;
 
 	/**
 	 * The context type of this expression. If it is null, it defaults to the type entity of container
@@ -88,18 +104,18 @@ public class Expression implements Serializable {
 	 */
 	private transient TypeEntity contextEntity;
 
-	private Integer contextEntityId;
+	private int contextEntityId = NO_ID;
 
 	/**
 	 * type arguments in call expression that matches type parameters in
 	 * a function.<br>
 	 * Call类型的表达式中的泛型参数，与调用的函数的泛型参数所匹配。<br>
 	 */
-	private final List<GenericName> callTypeArguments = new ArrayList<>();
+	private List<GenericName> callTypeArguments;
 
-	private transient List<Expression> callParameters = new ArrayList<>();
+	private transient List<Expression> callParameters;
 
-	private final List<Integer> callParameterIds = new ArrayList<>();
+	private List<Integer> callParameterIds;
 
 	/**
 	 * The expression of the function caller
@@ -107,13 +123,7 @@ public class Expression implements Serializable {
 	 */
 	private transient Expression caller;
 
-	private Integer callerId;
-
-	/**
-	 * Confirm through parameter matching that this expression
-	 * must have called the function {@link #referredEntity} refers to
-	 */
-	private boolean explicitCallReferredEntity = false;
+	private int callerId = NO_ID;
 
 	private transient Map<GenericName, TypeEntity> genericTypeInfer;
 
@@ -121,7 +131,26 @@ public class Expression implements Serializable {
 
 	private transient List<Expression> resolveFirstList;
 
-	private final List<Integer> resolveFirstIds = new ArrayList<>();
+	private List<Integer> resolveFirstIds;
+
+	private static int idOf(Integer id) {
+		return id == null ? NO_ID : id;
+	}
+
+	private boolean is(int flag) {
+		return (flags & flag) != 0;
+	}
+
+	private void set(int flag, boolean on) {
+		if (on) flags |= flag;
+		else flags &= ~flag;
+	}
+
+	private static <T> List<T> add(List<T> list, T element) {
+		if (list == null) list = new ArrayList<>(2);
+		list.add(element);
+		return list;
+	}
 
 	/**
 	 * @return true if the expression need resolve again
@@ -235,7 +264,7 @@ public class Expression implements Serializable {
 
 	public void setContainer(ContainerEntity container) {
 		this.container = container;
-		containerId = container.getId();
+		containerId = idOf(container.getId());
 	}
 
 	/**
@@ -264,46 +293,46 @@ public class Expression implements Serializable {
 
 	public void setContextEntity(TypeEntity contextEntity) {
 		this.contextEntity = contextEntity;
-		this.contextEntityId = contextEntity.getId();
+		this.contextEntityId = idOf(contextEntity.getId());
 	}
 	/*
 	 * */
 
 	public Expression() {
-		deducedTypeVars = new ArrayList<>();
-		deducedTypeFunctions = new ArrayList<>();
 	}
 
 	public Expression(Integer id) {
 		this.id = id;
-		deducedTypeVars = new ArrayList<>();
-		deducedTypeFunctions = new ArrayList<>();
 	}
 
 	public void reload(EntityRepo repo, ArrayList<Expression> expressionList) {
-		this.deducedTypeFunctions = new ArrayList<>();
-		this.deducedTypeVars = new ArrayList<>();
+		this.deducedTypeFunctions = null;
+		this.deducedTypeVars = null;
 
 		//recover parent relation
 		boolean parentFind = false;
-		for (Expression expr : expressionList) {
-			if (parentId != -1 && !parentFind && Objects.equals(expr.id, parentId)) {
+		boolean needScan = parentId != NO_ID || callParameterIds != null || resolveFirstIds != null || callerId != NO_ID;
+		for (int i = 0; needScan && i < expressionList.size(); i++) {
+			Expression expr = expressionList.get(i);
+			int exprId = idOf(expr.id);
+			if (parentId != NO_ID && !parentFind && exprId == parentId) {
 				parent = expr;
 				parentFind = true;
 			}
-			if (callParameterIds.contains(expr.id)) {
+			if (callParameterIds != null && callParameterIds.contains(expr.id)) {
 				getCallParameters().add(expr);
 			}
-			if (resolveFirstIds.contains(expr.id)) {
+			if (resolveFirstIds != null && resolveFirstIds.contains(expr.id)) {
 				getResolveFirstList().add(expr);
 			}
-			if (callerId != null && callerId != -1 && Objects.equals(expr.id, callerId)) {
+			if (callerId != NO_ID && exprId == callerId) {
 				caller = expr;
 			}
 		}
 
 		//recover deducedTypeFunctionsId
 		if (deducedTypeFunctionsId != null) {
+			this.deducedTypeFunctions = new ArrayList<>(deducedTypeFunctionsId.size());
 			for (Integer funcId : this.deducedTypeFunctionsId) {
 				this.deducedTypeFunctions.add((FunctionEntity) repo.getEntity(funcId));
 			}
@@ -311,26 +340,27 @@ public class Expression implements Serializable {
 
 		//recover deducedTypeVars
 		if (deducedTypeVarsId != null) {
+			this.deducedTypeVars = new ArrayList<>(deducedTypeVarsId.size());
 			for (Integer varId : this.deducedTypeVarsId) {
 				this.deducedTypeVars.add((VarEntity) repo.getEntity(varId));
 			}
 		}
 
 		//referer referredEntity -- TODO:maybe not require
-		if (this.referredEntityId != null && this.referredEntity == null) {
+		if (this.referredEntityId != NO_ID && this.referredEntity == null) {
 			this.referredEntity = repo.getEntity(this.referredEntityId);
 			if (this.referredEntity == null) {
 				System.err.println("unexpected: referred Entity is null" + this.referredEntityId + this.text + this.id);
 			}
 		}
 
-		if (containerId != null) {
+		if (containerId != NO_ID) {
 			Entity mayBeContainer = repo.getEntity(containerId);
 			if (mayBeContainer instanceof ContainerEntity containerEntity) {
 				container = containerEntity;
 			}
 		}
-		if (contextEntityId != null) {
+		if (contextEntityId != NO_ID) {
 			Entity mayBeType = repo.getEntity(contextEntityId);
 			if (mayBeType instanceof TypeEntity typeEntity) {
 				contextEntity = typeEntity;
@@ -371,14 +401,18 @@ public class Expression implements Serializable {
 		if (this.type == null && type != null) {
 			this.type = type;
 			changedType = true;
-			for (VarEntity var : deducedTypeVars) {
-				if (var != null) {
-					var.setType(this.type);
+			if (deducedTypeVars != null) {
+				for (VarEntity var : deducedTypeVars) {
+					if (var != null) {
+						var.setType(this.type);
+					}
 				}
 			}
-			for (FunctionEntity func : deducedTypeFunctions) {
-				if (func != null) {
-					func.addReturnType(this.type);
+			if (deducedTypeFunctions != null) {
+				for (FunctionEntity func : deducedTypeFunctions) {
+					if (func != null) {
+						func.addReturnType(this.type);
+					}
 				}
 			}
 		}
@@ -407,9 +441,9 @@ public class Expression implements Serializable {
 		if (this.parent == null) return;
 		Expression parent = this.parent;
 		if (parent.type != null) return;
-		if (!parent.deriveTypeFromChild) return;
+		if (!parent.is(DERIVE_TYPE_FROM_CHILD)) return;
 		//parent's type depends on first child's type
-		if (!Objects.equals(parent.deduceTypeBasedId, this.id)) return;
+		if (parent.deduceTypeBasedId != idOf(this.id)) return;
 
 		//if child is a built-in/external type, then parent must also a built-in/external type
 		if (this.type.equals(TypeEntity.buildInType)) {
@@ -418,16 +452,16 @@ public class Expression implements Serializable {
 		}
 
 		/* if it is a logic expression, the return type/type is boolean. */
-		if (parent.isLogic) {
+		if (parent.isLogic()) {
 			parent.setType(TypeEntity.buildInType, null, bindingResolver);
 		}
 		/* if it is a.b, and we already get a's type, b's type could be identified easily  */
-		else if (parent.isDot) {
+		else if (parent.isDot()) {
 			if (parent.isCall()) {
 				List<Entity> funcs = this.getType().lookupFunctionInVisibleScope(parent.identifier);
 				if (getContainer() != null) {
 					FunctionEntity functionEntity = getContainer().lookupExtensionFunctionInVisibleScope(
-							getType(), parent.identifier, true);
+							getType(), parent.identifier, true, bindingResolver.getExtensionFunctionIndex());
 					if (functionEntity != null) {
 						funcs.add(functionEntity);
 					}
@@ -489,7 +523,7 @@ public class Expression implements Serializable {
 	protected void setReferredEntity(Entity referredEntity) {
 		this.referredEntity = referredEntity;
 		if (this.referredEntity != null) {
-			this.referredEntityId = referredEntity.getId();
+			this.referredEntityId = idOf(referredEntity.getId());
 		}
 	}
 
@@ -499,27 +533,27 @@ public class Expression implements Serializable {
 	 * @param var
 	 */
 	public void addDeducedTypeVar(VarEntity var) {
-		this.deducedTypeVars.add(var);
-		this.deducedTypeVarsId.add(var.getId());
+		this.deducedTypeVars = add(this.deducedTypeVars, var);
+		this.deducedTypeVarsId = add(this.deducedTypeVarsId, var.getId());
 	}
 
 	/**
 	 * remember the functions depends on the expression type
 	 */
 	public void addDeducedTypeFunction(FunctionEntity function) {
-		this.deducedTypeFunctions.add(function);
-		this.deducedTypeFunctionsId.add(function.id);
+		this.deducedTypeFunctions = add(this.deducedTypeFunctions, function);
+		this.deducedTypeFunctionsId = add(this.deducedTypeFunctionsId, function.id);
 	}
 
 	public void setParent(Expression parent) {
 		this.parent = parent;
 		if (parent != null)
-			this.parentId = parent.id;
+			this.parentId = idOf(parent.id);
 		if (parent != null) {
-			if (parent.deduceTypeBasedId == null)
-				parent.deduceTypeBasedId = id;
-			if (parent.isSet) {
-				parent.deduceTypeBasedId = id;
+			if (parent.deduceTypeBasedId == NO_ID)
+				parent.deduceTypeBasedId = idOf(id);
+			if (parent.isSet()) {
+				parent.deduceTypeBasedId = idOf(id);
 			}
 		}
 	}
@@ -585,79 +619,79 @@ public class Expression implements Serializable {
 	}
 
 	public boolean isCall() {
-		return isCall;
+		return is(CALL);
 	}
 
 	public boolean isSet() {
-		return isSet;
+		return is(SET);
 	}
 
 	public void setSet(boolean isSet) {
-		this.isSet = isSet;
+		set(SET, isSet);
 	}
 
 	public boolean isDot() {
-		return isDot;
+		return is(DOT);
 	}
 
 	public void setDot(boolean isDot) {
-		this.isDot = isDot;
+		set(DOT, isDot);
 	}
 
 	public boolean isLogic() {
-		return isLogic;
+		return is(LOGIC);
 	}
 
 	public void setLogic(boolean isLogic) {
-		this.isLogic = isLogic;
+		set(LOGIC, isLogic);
 	}
 
 	public boolean isCreate() {
-		return isCreate;
+		return is(CREATE);
 	}
 
 	public void setCreate(boolean isCreate) {
-		this.isCreate = isCreate;
+		set(CREATE, isCreate);
 	}
 
 	public boolean isCast() {
-		return isCast;
+		return is(CAST);
 	}
 
 	public void setCast(boolean isCast) {
-		this.isCast = isCast;
+		set(CAST, isCast);
 	}
 
 	public boolean isThrow() {
-		return isThrow;
+		return is(THROW);
 	}
 
 	public void setThrow(boolean isThrow) {
-		this.isThrow = isThrow;
+		set(THROW, isThrow);
 	}
 
 	public boolean isStatement() {
-		return isStatement;
+		return is(STATEMENT);
 	}
 
 	public void setStatement(boolean isStatement) {
-		this.isStatement = isStatement;
+		set(STATEMENT, isStatement);
 	}
 
 	public void setCall(boolean isCall) {
-		this.isCall = isCall;
+		set(CALL, isCall);
 	}
 
 	public boolean isParameter() {
-		return isParameter;
+		return is(PARAMETER);
 	}
 
 	public void setParameter(boolean parameter) {
-		isParameter = parameter;
+		set(PARAMETER, parameter);
 	}
 
 	public void disableDriveTypeFromChild() {
-		deriveTypeFromChild = false;
+		set(DERIVE_TYPE_FROM_CHILD, false);
 	}
 
 	public Entity getReferredEntity() {
@@ -682,12 +716,12 @@ public class Expression implements Serializable {
 		s.append("[").append(text).append("]").append("|")
 				.append("rawType:").append(rawType).append("|")
 				.append("identifier:").append(identifier).append("|")
-				.append("prop:").append(isDot ? "[dot]" : "")
-				.append(isSet ? "[set]" : "")
-				.append(isLogic ? "[bool]" : "")
-				.append(isCall ? "[call]" : "")
-				.append(isCreate ? "[new]" : "")
-				.append(isThrow ? "[throw]" : "").append("|")
+				.append("prop:").append(isDot() ? "[dot]" : "")
+				.append(isSet() ? "[set]" : "")
+				.append(isLogic() ? "[bool]" : "")
+				.append(isCall() ? "[call]" : "")
+				.append(isCreate() ? "[new]" : "")
+				.append(isThrow() ? "[throw]" : "").append("|")
 				.append("parent:").append(parent == null ? "nil" : parent.text).append("|")
 				.append("type:").append(type).append("|");
 		return s.toString();
@@ -709,10 +743,23 @@ public class Expression implements Serializable {
 		return location;
 	}
 
+	/**
+	 * @return the mutable type arguments, allocated on first call
+	 */
 	public List<GenericName> getCallTypeArguments() {
+		if (callTypeArguments == null) {
+			callTypeArguments = new ArrayList<>(2);
+		}
 		return callTypeArguments;
 	}
 
+	/**
+	 * @return the type arguments without allocating them, read-only
+	 */
+	List<GenericName> callTypeArguments() {
+		return callTypeArguments == null ? Collections.emptyList() : callTypeArguments;
+	}
+
 	public List<Expression> getCallParameters() {
 		if (callParameters == null) {
 			callParameters = new ArrayList<>();
@@ -720,31 +767,38 @@ public class Expression implements Serializable {
 		return callParameters;
 	}
 
+	/**
+	 * @return the call parameters without allocating them, read-only
+	 */
+	List<Expression> callParameters() {
+		return callParameters == null ? Collections.emptyList() : callParameters;
+	}
+
 	public void addCallParameter(Expression expression) {
 		if (callParameters == null) {
 			callParameters = new ArrayList<>();
 		}
 		callParameters.add(expression);
-		callParameterIds.add(expression.id);
+		callParameterIds = add(callParameterIds, expression.id);
 	}
 
 	public void clearCallParameters() {
-		callParameters.clear();
-		callParameterIds.clear();
+		if (callParameters != null) callParameters.clear();
+		if (callParameterIds != null) callParameterIds.clear();
 	}
 
 	public int getParameterIndex() {
 		Expression parent1 = getParent();
-		if (parent1 == null) return -1;
-		return parent1.getCallParameters().indexOf(this);
+		if (parent1 == null || parent1.callParameters == null) return -1;
+		return parent1.callParameters.indexOf(this);
 	}
 
 	public boolean isExplicitCallReferredEntity() {
-		return explicitCallReferredEntity;
+		return is(EXPLICIT_CALL_REFERRED_ENTITY);
 	}
 
 	public void setExplicitCallReferredEntity(boolean explicitCallReferredEntity) {
-		this.explicitCallReferredEntity = explicitCallReferredEntity;
+		set(EXPLICIT_CALL_REFERRED_ENTITY, explicitCallReferredEntity);
 	}
 
 	public Map<GenericName, TypeEntity> getGenericTypeInfer() {
@@ -769,12 +823,19 @@ public class Expression implements Serializable {
 		return resolveFirstList;
 	}
 
+	/**
+	 * @return the expressions to resolve first without allocating them, read-only
+	 */
+	List<Expression> resolveFirstList() {
+		return resolveFirstList == null ? Collections.emptyList() : resolveFirstList;
+	}
+
 	public void addResolveFirst(Expression expression) {
 		if (resolveFirstList == null) {
 			resolveFirstList = new ArrayList<>();
 		}
 		resolveFirstList.add(expression);
-		resolveFirstIds.add(expression.id);
+		resolveFirstIds = add(resolveFirstIds, expression.id);
 	}
 
 	public @Nullable Expression getCaller() {
@@ -783,6 +844,6 @@ public class Expression implements Serializable {
 
 	public void setCaller(@NotNull Expression caller) {
 		this.caller = caller;
-		this.callerId = caller.id;
+		this.callerId = idOf(caller.id);
 	}
 }
\ No newline at end of file
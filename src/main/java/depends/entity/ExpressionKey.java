@@ -0,0 +1,47 @@
+package depends.entity;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+/**
+ * Key of an expression by the token range and rule of its parse tree context.<br>
+ * 以语法树上下文的token范围与规则标识表达式的键
+ * <p>
+ * Keeping the context itself as the key keeps the whole parse tree reachable until the expressions
+ * are cached; this key only keeps four ints, so the parse tree could be collected as soon as
+ * the file is parsed. A context nested in another context of the same rule covering the same tokens
+ * (e.g. a unit production of the rule) is told apart by its nesting. Only empty contexts of the same rule
+ * at the same position of the same parent share a key, and no expression is built for them.
+ *
+ * @param startToken index of the first token
+ * @param stopToken  index of the last token, or startToken - 1 if the context is empty
+ * @param rule       the rule index of the context
+ * @param nesting    number of the ancestors of the same rule covering the same tokens
+ */
+public record ExpressionKey(int startToken, int stopToken, int rule, int nesting) {
+	public static ExpressionKey of(ParserRuleContext ctx) {
+		int start = ctx.getStart() == null ? -1 : ctx.getStart().getTokenIndex();
+		int stop = ctx.getStop() == null ? start - 1 : ctx.getStop().getTokenIndex();
+		int rule = ctx.getRuleIndex();
+		int nesting = 0;
+		// only the chain of ancestors covering the same tokens is walked, which is short
+		for (ParserRuleContext parent = ctx.getParent(); parent != null && sameRange(parent, start, stop); parent = parent.getParent()) {
+			if (parent.getRuleIndex() == rule) nesting++;
+		}
+		return new ExpressionKey(start, stop, rule, nesting);
+	}
+
+	private static boolean sameRange(ParserRuleContext ctx, int start, int stop) {
+		if (ctx.getStart() == null || ctx.getStart().getTokenIndex() != start) return false;
+		int ctxStop = ctx.getStop() == null ? start - 1 : ctx.getStop().getTokenIndex();
+		return ctxStop == stop;
+	}
+
+	/**
+	 * @return the key of the parse tree context, or the key itself if it is not a context
+	 */
+	public static Object keyOf(Object key) {
+		if (key instanceof ParserRuleContext ctx && ctx.getStart() != null)
+			return of(ctx);
+		return key;
+	}
+}
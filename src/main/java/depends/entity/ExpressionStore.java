@@ -0,0 +1,239 @@
+package depends.entity;
+
+import multilang.depends.util.file.TemporaryFile;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.Statistics;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.config.PersistenceConfiguration;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the cached expressions of containers in two tiers: a bounded on-heap LRU cache, then the disk.<br>
+ * 分两级保存容器缓存的表达式：有界的堆内LRU缓存，其次是磁盘
+ * <p>
+ * The heap tier is an Ehcache memory store, bounded by the number of containers it keeps.
+ * The bound is derived from the heap budget and the average number of expressions per container,
+ * estimated by {@link #BYTES_PER_EXPRESSION}. Since a few large containers could exceed the budget within
+ * the bound, the estimated bytes are bounded by the budget as well: the least recently used containers
+ * are evicted until they fit, and a container larger than the budget is not kept at all.
+ * The least recently used containers evicted from the heap tier are written to disk, so small and medium projects never pay the disk I/O, and a container resolved
+ * and then counted again is read from heap while it stays hot.
+ * Expressions kept in heap are not serialized, so they need no reload either.
+ */
+public final class ExpressionStore {
+	private static final Logger logger = LoggerFactory.getLogger(ExpressionStore.class);
+	private static final String CACHE_NAME = "depends-expressions";
+	/** estimated heap bytes of an expression: about 220 with its lists, and 24 of its location */
+	static final long BYTES_PER_EXPRESSION = 244;
+	private static final ExpressionStore instance = new ExpressionStore();
+
+	private record Kept(ArrayList<Expression> expressions, long bytes) {
+	}
+
+	private Cache onHeap;
+	/* estimated bytes of the containers in the heap tier, from the least recently used */
+	private final LinkedHashMap<Integer, Long> recentlyUsed = new LinkedHashMap<>(16, 0.75f, true);
+	private long budgetEvictions = 0;
+	private long heapBudget = -1;
+	private long heapBytes = 0;
+	private long keptExpressions = 0;
+	private long keptContainers = 0;
+	private long spilledContainers = 0;
+	private long diskReads = 0;
+
+	public static ExpressionStore getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @param heapBudget bytes of expressions kept in heap; 0 means always spill to disk,
+	 *                   negative means a quarter of the max heap
+	 */
+	public synchronized void setHeapBudget(long heapBudget) {
+		this.heapBudget = heapBudget;
+		if (heapBudget == 0) {
+			spillAll();
+			return;
+		}
+		resize();
+	}
+
+	public synchronized long getHeapBudget() {
+		if (heapBudget < 0)
+			return Runtime.getRuntime().maxMemory() / 4;
+		return heapBudget;
+	}
+
+	/**
+	 * Keep the expressions of the container, replacing the ones kept before
+	 */
+	public synchronized void put(ContainerEntity container, ArrayList<Expression> expressions) {
+		discard(container);
+		keptExpressions += expressions.size();
+		keptContainers++;
+		Kept kept = new Kept(expressions, expressions.size() * BYTES_PER_EXPRESSION);
+		long budget = getHeapBudget();
+		if (budget == 0 || kept.bytes > budget) {
+			spill(container.getId(), expressions);
+			return;
+		}
+		heapBytes += kept.bytes;
+		resize();
+		// the coldest containers over the bound are evicted (and spilled) in this call
+		cache().put(new Element(container.getId(), kept));
+		recentlyUsed.put(container.getId(), kept.bytes);
+		evictOverBudget(budget);
+	}
+
+	/**
+	 * Evict the least recently used containers until the kept bytes fit in the budget
+	 */
+	private void evictOverBudget(long budget) {
+		Iterator<Map.Entry<Integer, Long>> it = recentlyUsed.entrySet().iterator();
+		while (heapBytes > budget && it.hasNext()) {
+			int id = it.next().getKey();
+			it.remove();
+			Element element = onHeap.removeAndReturnElement(id);
+			if (element == null) continue;
+			Kept kept = (Kept) element.getObjectValue();
+			heapBytes -= kept.bytes;
+			budgetEvictions++;
+			spill(id, kept.expressions);
+		}
+	}
+
+	/**
+	 * @return the expressions kept in heap, or null if they are spilled (see {@link #read(int)})
+	 */
+	public synchronized ArrayList<Expression> get(ContainerEntity container) {
+		Element element = cache().get(container.getId());
+		if (element == null) return null;
+		recentlyUsed.get(container.getId());
+		return ((Kept) element.getObjectValue()).expressions;
+	}
+
+	/**
+	 * Forget the expressions of the container kept in heap, e.g. when they are not used any more
+	 */
+	public synchronized void discard(ContainerEntity container) {
+		if (onHeap == null) return;
+		Element element = cache().removeAndReturnElement(container.getId());
+		recentlyUsed.remove(container.getId());
+		if (element != null) heapBytes -= ((Kept) element.getObjectValue()).bytes;
+	}
+
+	/**
+	 * Read the spilled expressions of the container. The transient fields should be reloaded by the caller.
+	 */
+	@SuppressWarnings("unchecked")
+	public ArrayList<Expression> read(int containerId) throws IOException, ClassNotFoundException {
+		synchronized (this) {
+			diskReads++;
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+				new FileInputStream(TemporaryFile.getInstance().exprPath(containerId))))) {
+			return (ArrayList<Expression>) in.readObject();
+		}
+	}
+
+	/**
+	 * Forget the expressions kept in heap and the statistics, at the end of a run
+	 */
+	public synchronized void clear() {
+		if (onHeap != null) {
+			onHeap.removeAll();
+			onHeap.clearStatistics();
+		}
+		recentlyUsed.clear();
+		heapBytes = 0;
+		budgetEvictions = 0;
+		spilledContainers = 0;
+		diskReads = 0;
+	}
+
+	/**
+	 * @return the number of containers kept in heap; the hits, misses and evictions of the heap tier; and the disk reads
+	 */
+	public synchronized String getStatistics() {
+		Statistics statistics = cache().getStatistics();
+		return String.format("expressions in heap: %d containers, ~%dMB; heap hits: %d, misses: %d, evictions: %d; spilled containers: %d; disk reads: %d",
+				onHeap.getSize(), heapBytes / 1024 / 1024, statistics.getCacheHits(), statistics.getCacheMisses(),
+				statistics.getEvictionCount() + budgetEvictions, spilledContainers, diskReads);
+	}
+
+	/**
+	 * The heap tier is created once, with a cache manager owned by the store, so shutting down
+	 * the shared manager (at the end of {@link depends.Main}) does not drop the kept expressions unspilled.
+	 */
+	private Cache cache() {
+		if (onHeap != null)
+			return onHeap;
+		CacheManager manager = new CacheManager(new Configuration().name(CACHE_NAME).updateCheck(false));
+		onHeap = new Cache(new CacheConfiguration(CACHE_NAME, capacity())
+				.memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU)
+				.eternal(true)
+				.persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.NONE))
+				.statistics(true));
+		onHeap.getCacheEventNotificationService().registerListener(new CacheEventListenerAdapter() {
+			@Override
+			public void notifyElementEvicted(Ehcache cache, Element element) {
+				Kept kept = (Kept) element.getObjectValue();
+				heapBytes -= kept.bytes;
+				recentlyUsed.remove((Integer) element.getObjectKey());
+				spill((Integer) element.getObjectKey(), kept.expressions);
+			}
+		});
+		manager.addCache(onHeap);
+		return onHeap;
+	}
+
+	/**
+	 * @return the number of containers fitting in the heap budget, at least 1 (0 means unbounded for Ehcache)
+	 */
+	private int capacity() {
+		long averageExpressions = keptContainers == 0 ? 1 : Math.max(1, keptExpressions / keptContainers);
+		long containers = getHeapBudget() / (averageExpressions * BYTES_PER_EXPRESSION);
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, containers));
+	}
+
+	private void resize() {
+		CacheConfiguration config = cache().getCacheConfiguration();
+		int capacity = capacity();
+		if (config.getMaxEntriesLocalHeap() != capacity)
+			config.setMaxEntriesLocalHeap(capacity);
+	}
+
+	private void spillAll() {
+		if (onHeap == null) return;
+		for (Object key : onHeap.getKeys()) {
+			Element element = onHeap.removeAndReturnElement(key);
+			if (element == null) continue;
+			spill((Integer) key, ((Kept) element.getObjectValue()).expressions);
+		}
+		recentlyUsed.clear();
+		heapBytes = 0;
+	}
+
+	private void spill(int containerId, ArrayList<Expression> expressions) {
+		spilledContainers++;
+		try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+				new FileOutputStream(TemporaryFile.getInstance().exprPath(containerId))))) {
+			out.writeObject(expressions);
+		} catch (IOException e) {
+			logger.error("failed to spill expressions of " + containerId, e);
+		}
+	}
+}
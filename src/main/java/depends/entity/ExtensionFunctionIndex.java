@@ -0,0 +1,107 @@
+package depends.entity;
+
+import depends.entity.repo.EntityRepo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Extension functions indexed by function name and receiver type (the type of the first parameter).<br>
+ * 按函数名和接收者类型（第一个参数的类型）索引的扩展函数
+ * <p>
+ * The index could only be built after types resolved, because the receiver types are unknown before.
+ * Each function is recorded together with its owner, which is the entity whose functions or alias children
+ * contain it, so that the visibility is the same as
+ * {@link ContainerEntity#processVisibleEntitiesThatNameOf(Entity, GenericName, boolean, Consumer)}.
+ */
+public class ExtensionFunctionIndex {
+	private record Entry(GenericName name, FunctionEntity function, Entity owner) {
+	}
+
+	/* keyed by the plain name, because the hash code of a GenericName does not agree with its equals */
+	private final HashMap<String, HashMap<TypeEntity, ArrayList<Entry>>> index = new HashMap<>();
+
+	public ExtensionFunctionIndex(@NotNull EntityRepo repo) {
+		Iterator<Entity> iterator = repo.entityIterator();
+		while (iterator.hasNext()) {
+			Entity entity = iterator.next();
+			if (entity instanceof CandidateTypes) continue;
+			if (entity instanceof ContainerEntity container) {
+				for (FunctionEntity function : container.getFunctions()) {
+					add(function.getRawName(), function, container);
+				}
+			} else if (entity instanceof AliasEntity && entity.getParent() != null
+					&& entity.getActualReferTo() instanceof FunctionEntity function) {
+				add(entity.getRawName(), function, entity.getParent());
+			}
+		}
+	}
+
+	private void add(GenericName name, FunctionEntity function, Entity owner) {
+		TypeEntity receiverType = receiverTypeOf(function);
+		if (name == null || receiverType == null) return;
+		index.computeIfAbsent(name.getName(), k -> new HashMap<>())
+				.computeIfAbsent(receiverType, k -> new ArrayList<>())
+				.add(new Entry(name, function, owner));
+	}
+
+	/**
+	 * @return the type of the first parameter if the function is an extension function, otherwise null
+	 */
+	public static @Nullable TypeEntity receiverTypeOf(@NotNull FunctionEntity function) {
+		if (!function.isExtension()) return null;
+		ArrayList<VarEntity> parameters = function.getParameters();
+		if (parameters == null || parameters.isEmpty()) return null;
+		VarEntity firstParameter = parameters.get(0);
+		if (firstParameter == null) return null;
+		return firstParameter.getType();
+	}
+
+	/**
+	 * Process the extension functions named {@code name} which are visible from {@code fromEntity}.
+	 * Functions whose receiver type is {@code receiverType} are processed first.
+	 */
+	public void processVisibleExtensions(
+			@NotNull Entity fromEntity,
+			@NotNull TypeEntity receiverType,
+			@NotNull GenericName name,
+			boolean searchPackage,
+			@NotNull Consumer<Entity> consumer
+	) {
+		HashMap<TypeEntity, ArrayList<Entry>> byReceiver = index.get(name.getName());
+		if (byReceiver == null) return;
+		ArrayList<Entry> exact = byReceiver.get(receiverType);
+		if (exact != null) {
+			processVisible(fromEntity, name, exact, searchPackage, consumer);
+		}
+		for (Map.Entry<TypeEntity, ArrayList<Entry>> entry : byReceiver.entrySet()) {
+			if (entry.getKey().equals(receiverType)) continue;
+			processVisible(fromEntity, name, entry.getValue(), searchPackage, consumer);
+		}
+	}
+
+	private static void processVisible(Entity fromEntity, GenericName name, List<Entry> entries, boolean searchPackage,
+									   Consumer<Entity> consumer) {
+		for (Entry entry : entries) {
+			if (entry.name.equals(name) && isVisible(fromEntity, entry.owner, searchPackage)) {
+				consumer.accept(entry.function);
+			}
+		}
+	}
+
+	/**
+	 * The owner is visible if it is on the parent chain of fromEntity,
+	 * or it is a child of a package on the chain.
+	 */
+	private static boolean isVisible(Entity fromEntity, Entity owner, boolean searchPackage) {
+		Entity now = fromEntity;
+		while (now != null) {
+			if (now.equals(owner)) return true;
+			if (searchPackage && now instanceof PackageEntity && now.getChildren().contains(owner)) return true;
+			now = now.getParent();
+		}
+		return false;
+	}
+}
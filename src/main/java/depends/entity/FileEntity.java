@@ -24,8 +24,10 @@ SOFTWARE.
 
 package depends.entity;
 
+import depends.entity.repo.QualifiedNameTrie;
 import depends.importtypes.Import;
 import depends.relations.IBindingResolver;
+import depends.utils.EntityUtils;
 
 import java.util.*;
 
@@ -36,15 +38,22 @@ public class FileEntity extends TypeEntity {
 	private Collection<Entity> importedFiles = new ArrayList<>();
 	private Collection<Entity> importedTypes = new ArrayList<>();
 	private List<TypeEntity> declaredTypes = new ArrayList<>();
-	private ImportedFileCollector importedFileCollector = null;
+	/* memoized by ImportedFileCollector, shared by the files of a strongly connected component */
+	Set<FileEntity> importedFileClosure = null;
+	int importedFileClosureVersion = -1;
 	private boolean fileAsModule = false;
 	private String moduleName = "";
+	private QualifiedNameTrie<String> importedTypeSuffixes = null;
+	private int importedTypeSuffixesSize = 0;
+	/* language name of the file by its suffix, e.g. "Java" */
+	private String language = null;
 
 	public FileEntity() {}
 
 	public FileEntity(boolean fileAsModule,String fullName, int fileId, boolean isInProjectScope) {
 		super(GenericName.build(fullName), null, fileId);
 		setQualifiedName(fullName);
+		this.language = EntityUtils.languageOfFileName(fullName);
 		this.isInProjectScope = isInProjectScope;
 		this.fileAsModule = fileAsModule;
 	}
@@ -67,16 +76,27 @@ public class FileEntity extends TypeEntity {
 	 * @return
 	 */
 	public String importedSuffixMatch(String lastName) {
-		if (!lastName.startsWith("."))
-			lastName = "." + lastName;
-		for (Entity imported : this.importedTypes) {
-			String name = imported.getQualifiedName(true);
-			if (!name.startsWith("."))
-				name = "." + name;
-			if (imported.getQualifiedName(true).endsWith(lastName))
-				return imported.getQualifiedName(true);
+		if (importedTypes == null) return null;
+		if (lastName.startsWith("."))
+			lastName = lastName.substring(1);
+		return importedTypeSuffixes().suffixMatch(lastName);
+	}
+
+	/**
+	 * The qualified names of imported types, indexed by their segments from the last one.
+	 * It is rebuilt if the imported types changed.
+	 */
+	private QualifiedNameTrie<String> importedTypeSuffixes() {
+		if (importedTypeSuffixes == null || importedTypeSuffixesSize != importedTypes.size()) {
+			importedTypeSuffixes = QualifiedNameTrie.suffixTrie();
+			for (Entity imported : this.importedTypes) {
+				String name = imported.getQualifiedName(true);
+				if (name != null)
+					importedTypeSuffixes.put(name, name);
+			}
+			importedTypeSuffixesSize = importedTypes.size();
 		}
-		return null;
+		return importedTypeSuffixes;
 	}
 
 
@@ -104,7 +124,10 @@ public class FileEntity extends TypeEntity {
 	public void inferLocalLevelEntities(IBindingResolver bindingResolver) {
 		this.importedRelationEntities = bindingResolver.getImportedRelationEntities(importedNames);
 		this.importedTypes = bindingResolver.getImportedTypes(importedNames,this);
-		this.importedFiles = bindingResolver.getImportedFiles(importedNames);
+		this.importedTypeSuffixes = null;
+		Collection<Entity> importedFiles = bindingResolver.getImportedFiles(importedNames);
+		ImportedFileCollector.importsChanged(this.importedFiles, importedFiles);
+		this.importedFiles = importedFiles;
 
 		super.inferLocalLevelEntities(bindingResolver);
 	}
@@ -117,6 +140,17 @@ public class FileEntity extends TypeEntity {
 		this.isInProjectScope = isInProjectScope;
 	}
 
+	/**
+	 * @return the language name of the file decided by its suffix when it is created, e.g. "Java"
+	 */
+	public String getLanguage() {
+		if (language == null && getQualifiedName() != null)
+			language = EntityUtils.languageOfFileName(getQualifiedName());
+		if (language == null)
+			return EntityUtils.UNKNOWN_LANGUAGE;
+		return language;
+	}
+
 	public Collection<Entity> getImportedRelationEntities() {
 		return importedRelationEntities;
 	}
@@ -138,10 +172,7 @@ public class FileEntity extends TypeEntity {
 	}
 
 	public Set<FileEntity> getImportedFilesInAllLevel() {
-		if (importedFileCollector==null)
-			importedFileCollector = new ImportedFileCollector(this);
-
-		return importedFileCollector.getFiles();
+		return ImportedFileCollector.closureOf(this);
 	}
 
 	public List<Import> getImportedNames() {
@@ -200,7 +200,7 @@ public class FunctionEntity extends ContainerEntity {
 		Map<GenericName, TypeEntity> genericTypeInfer = new HashMap<>();
 		List<GenericName> funcGenericArgs = getRawName().getArguments();
 		// The passed in generic type matches the generic parameters
-		List<GenericName> callTypeArguments = expression.getCallTypeArguments();
+		List<GenericName> callTypeArguments = expression.callTypeArguments();
 		boolean genericArgsMatch = callTypeArguments.size() == funcGenericArgs.size();
 		if (genericArgsMatch) {
 			for (int i = 0; i < funcGenericArgs.size(); i++) {
@@ -210,7 +210,7 @@ public class FunctionEntity extends ContainerEntity {
 						));
 			}
 		}
-		ArrayList<Expression> callParameters = new ArrayList<>(expression.getCallParameters());
+		ArrayList<Expression> callParameters = new ArrayList<>(expression.callParameters());
 		if (isExtension()) {
 			Expression caller = expression.getCaller();
 			if (caller != null) {
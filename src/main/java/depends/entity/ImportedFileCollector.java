@@ -24,30 +24,155 @@ SOFTWARE.
 
 package depends.entity;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
+/**
+ * Transitive closure of imported files (including the file itself).<br>
+ * 文件导入关系的传递闭包(包含文件自身)
+ * <p>
+ * The strongly connected components of the import graph are found by Tarjan's algorithm,
+ * and the closure of each component is computed once from the closures of the components it imports.
+ * All files of a component share the same closure set, and the closures are memoized on the files,
+ * so files importing the same deep headers do not traverse them again.
+ * The memoized closures are discarded whenever the imported files of any file change,
+ * so re-resolving imports to the same files keeps them.
+ */
 public class ImportedFileCollector {
-	Set<FileEntity> checkedFiles = new HashSet<>();
-	Set<FileEntity> files = new HashSet<>();
+	/* increased whenever imported files of any file change, which invalidates all closures */
+	private static volatile int importsVersion = 0;
+
+	private final Set<FileEntity> files;
 
 	public ImportedFileCollector(FileEntity fileEntity) {
-		appendImportedFiles(fileEntity);
+		this.files = closureOf(fileEntity);
+	}
+
+	public Set<FileEntity> getFiles() {
+		return files;
+	}
+
+	public static void importsChanged() {
+		importsVersion++;
+	}
+
+	/**
+	 * Discard the memoized closures only if the imported files of a file change from before to after
+	 */
+	public static void importsChanged(Collection<Entity> before, Collection<Entity> after) {
+		if (!sameFiles(before, after))
+			importsChanged();
+	}
+
+	private static boolean sameFiles(Collection<Entity> before, Collection<Entity> after) {
+		if (before == after) return true;
+		boolean beforeEmpty = before == null || before.isEmpty();
+		boolean afterEmpty = after == null || after.isEmpty();
+		if (beforeEmpty || afterEmpty) return beforeEmpty == afterEmpty;
+		return new HashSet<>(before).equals(new HashSet<>(after));
+	}
+
+	/**
+	 * @return the read-only closure of the file, which could be shared with other files
+	 */
+	public static Set<FileEntity> closureOf(FileEntity fileEntity) {
+		int version = importsVersion;
+		if (!isMemoized(fileEntity, version)) {
+			new ComponentFinder(version).strongConnect(fileEntity);
+		}
+		return fileEntity.importedFileClosure;
 	}
 
-	private void appendImportedFiles(FileEntity fileEntity) {
+	private static boolean isMemoized(FileEntity file, int version) {
+		return file.importedFileClosure != null && file.importedFileClosureVersion == version;
+	}
 
-		if (checkedFiles.contains(fileEntity)) return;
-		checkedFiles.add(fileEntity);
-		files.add(fileEntity);
-		for (Entity importedFile:fileEntity.getImportedFiles()) {
+	private static Iterator<FileEntity> importedFilesOf(FileEntity file) {
+		ArrayList<FileEntity> importedFiles = new ArrayList<>();
+		for (Entity importedFile : file.getImportedFiles()) {
 			if (importedFile instanceof FileEntity) {
-				appendImportedFiles((FileEntity)importedFile);
+				importedFiles.add((FileEntity) importedFile);
 			}
 		}
+		return importedFiles.iterator();
 	}
 
-	public Set<FileEntity> getFiles() {
-		return files;
+	/**
+	 * Iterative Tarjan's algorithm, which stops at files whose closures are already memoized
+	 */
+	private static class ComponentFinder {
+		private record Frame(FileEntity file, Iterator<FileEntity> importedFiles) {
+		}
+
+		private final int version;
+		private final HashMap<FileEntity, Integer> indexes = new HashMap<>();
+		private final HashMap<FileEntity, Integer> lowLinks = new HashMap<>();
+		private final ArrayDeque<FileEntity> stack = new ArrayDeque<>();
+		private final HashSet<FileEntity> onStack = new HashSet<>();
+
+		ComponentFinder(int version) {
+			this.version = version;
+		}
+
+		void strongConnect(FileEntity root) {
+			ArrayDeque<Frame> frames = new ArrayDeque<>();
+			visit(root, frames);
+			while (!frames.isEmpty()) {
+				Frame frame = frames.peek();
+				if (frame.importedFiles.hasNext()) {
+					FileEntity next = frame.importedFiles.next();
+					if (isMemoized(next, version)) continue;
+					if (!indexes.containsKey(next)) {
+						visit(next, frames);
+					} else if (onStack.contains(next)) {
+						lowLinks.put(frame.file, Math.min(lowLinks.get(frame.file), indexes.get(next)));
+					}
+					continue;
+				}
+				frames.pop();
+				if (!frames.isEmpty()) {
+					FileEntity parent = frames.peek().file;
+					lowLinks.put(parent, Math.min(lowLinks.get(parent), lowLinks.get(frame.file)));
+				}
+				if (lowLinks.get(frame.file).equals(indexes.get(frame.file))) {
+					memoizeComponent(frame.file);
+				}
+			}
+		}
+
+		private void visit(FileEntity file, ArrayDeque<Frame> frames) {
+			indexes.put(file, indexes.size());
+			lowLinks.put(file, indexes.get(file));
+			stack.push(file);
+			onStack.add(file);
+			frames.push(new Frame(file, importedFilesOf(file)));
+		}
+
+		/**
+		 * Pop the component rooted at the file. The components it imports are all memoized already.
+		 */
+		private void memoizeComponent(FileEntity root) {
+			ArrayList<FileEntity> members = new ArrayList<>();
+			FileEntity member;
+			do {
+				member = stack.pop();
+				onStack.remove(member);
+				members.add(member);
+			} while (member != root);
+
+			Set<FileEntity> closure = new HashSet<>(members);
+			for (FileEntity file : members) {
+				for (Iterator<FileEntity> it = importedFilesOf(file); it.hasNext(); ) {
+					FileEntity importedFile = it.next();
+					if (!closure.contains(importedFile) && isMemoized(importedFile, version)) {
+						closure.addAll(importedFile.importedFileClosure);
+					}
+				}
+			}
+			closure = Collections.unmodifiableSet(closure);
+			for (FileEntity file : members) {
+				file.importedFileClosure = closure;
+				file.importedFileClosureVersion = version;
+			}
+		}
 	}
 }
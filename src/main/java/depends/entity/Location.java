@@ -1,34 +1,91 @@
 package depends.entity;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
+/**
+ * Location in source, kept in primitive ints with {@link #UNKNOWN} for unknown values.<br>
+ * 源码中的位置，使用基本类型int保存，未知值为{@link #UNKNOWN}
+ * <p>
+ * The boxed getters return null for unknown values, as before.
+ * The serialized form only writes the known values after a bit mask of them.
+ */
 public class Location implements Serializable {
-	Integer line = null;
+	private static final long serialVersionUID = 1L;
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	transient int line = UNKNOWN;
 	// add for kotlin expression location
-	Integer startIndex = null;
-	Integer stopIndex = null;
+	transient int startIndex = UNKNOWN;
+	transient int stopIndex = UNKNOWN;
 
 	public Integer getStartIndex() {
-		return startIndex;
+		return boxed(startIndex);
 	}
 
 	public void setStartIndex(Integer startIndex) {
-		this.startIndex = startIndex;
+		this.startIndex = unboxed(startIndex);
 	}
 
 	public Integer getStopIndex() {
-		return stopIndex;
+		return boxed(stopIndex);
 	}
 
 	public void setStopIndex(Integer endIndex) {
-		this.stopIndex = endIndex;
+		this.stopIndex = unboxed(endIndex);
 	}
 
 	public Integer getLine() {
-		return line;
+		return boxed(line);
 	}
 
 	public void setLine(int line) {
 		this.line = line;
 	}
+
+	/**
+	 * @return the line, or {@link #UNKNOWN}
+	 */
+	public int line() {
+		return line;
+	}
+
+	/**
+	 * @return the start index, or {@link #UNKNOWN}
+	 */
+	public int startIndex() {
+		return startIndex;
+	}
+
+	/**
+	 * @return the stop index, or {@link #UNKNOWN}
+	 */
+	public int stopIndex() {
+		return stopIndex;
+	}
+
+	private static Integer boxed(int value) {
+		return value == UNKNOWN ? null : value;
+	}
+
+	private static int unboxed(Integer value) {
+		return value == null ? UNKNOWN : value;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		int known = (line == UNKNOWN ? 0 : 1) | (startIndex == UNKNOWN ? 0 : 2) | (stopIndex == UNKNOWN ? 0 : 4);
+		out.writeByte(known);
+		if ((known & 1) != 0) out.writeInt(line);
+		if ((known & 2) != 0) out.writeInt(startIndex);
+		if ((known & 4) != 0) out.writeInt(stopIndex);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException {
+		int known = in.readByte();
+		line = (known & 1) != 0 ? in.readInt() : UNKNOWN;
+		startIndex = (known & 2) != 0 ? in.readInt() : UNKNOWN;
+		stopIndex = (known & 4) != 0 ? in.readInt() : UNKNOWN;
+	}
 }
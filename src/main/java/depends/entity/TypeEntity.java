@@ -26,9 +26,7 @@ package depends.entity;
 
 import depends.relations.IBindingResolver;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.*;
 
 public class TypeEntity extends ContainerEntity {
 	static final public TypeEntity buildInType = new TypeEntity(GenericName.build("built-in"), null, -1);
@@ -38,6 +36,14 @@ public class TypeEntity extends ContainerEntity {
 	Collection<GenericName> inhertedTypeIdentifiers;
 	Collection<GenericName> implementedIdentifiers;
 	TypeEntity inheritedType;
+	/**
+	 * Index of the type after the type hierarchy is fixed, -1 before.
+	 * 类型层次固定后本类型的序号，固定前为-1
+	 */
+	private int hierarchyIndex = -1;
+	private HashMap<String, List<FunctionEntity>> functionTable;
+	private HashMap<String, List<VarEntity>> varTable;
+	private BitSet inheritedClosure;
 	public TypeEntity() {}
 	public TypeEntity(GenericName simpleName, Entity parent, Integer id) {
 		super(simpleName, parent, id);
@@ -45,6 +51,14 @@ public class TypeEntity extends ContainerEntity {
 		implementedIdentifiers = new ArrayList<>();
 	}
 
+	/**
+	 * Types, files and packages hold members, so their children are sized larger
+	 */
+	@Override
+	protected int expectedChildCount() {
+		return 16;
+	}
+
 	@Override
 	public void inferLocalLevelEntities(IBindingResolver bindingResolver) {
 		inheritedTypes = new ArrayList<>();
@@ -124,8 +138,107 @@ public class TypeEntity extends ContainerEntity {
 		return inheritedType;
 	}
 
+	/**
+	 * Called once the inherited/implemented types of all types are resolved.
+	 * After that, member lookups and {@link #isTypeParent} are answered by tables
+	 * built on first use, instead of searching the type hierarchy every time.<br>
+	 * 在所有类型的继承/实现类型解析完成后调用。此后成员查找和{@link #isTypeParent}
+	 * 使用首次使用时构建的表，不再每次搜索类型层次
+	 *
+	 * @param index a unique index of the type among all types of the repo
+	 */
+	public void fixHierarchy(int index) {
+		this.hierarchyIndex = index;
+		this.functionTable = null;
+		this.varTable = null;
+		this.inheritedClosure = null;
+	}
+
+	/**
+	 * All functions of the type, inherited types and implemented types, by the plain name,
+	 * in the order of {@link #lookupFunctionLocally(GenericName, Collection)}.
+	 * The key is a String because a {@link GenericName} is mutable, and its hash code
+	 * tells apart no type arguments from an empty list of them, while equals does not.
+	 */
+	private HashMap<String, List<FunctionEntity>> functionTable() {
+		if (functionTable == null) {
+			HashMap<String, List<FunctionEntity>> table = new HashMap<>();
+			collectMembers(table, null, new HashSet<>());
+			functionTable = table;
+		}
+		return functionTable;
+	}
+
+	private HashMap<String, List<VarEntity>> varTable() {
+		if (varTable == null) {
+			HashMap<String, List<VarEntity>> table = new HashMap<>();
+			collectMembers(null, table, new HashSet<>());
+			varTable = table;
+		}
+		return varTable;
+	}
+
+	private void collectMembers(Map<String, List<FunctionEntity>> functions,
+								Map<String, List<VarEntity>> vars, Set<TypeEntity> searched) {
+		if (!searched.add(this)) return;
+		if (functions != null) {
+			for (FunctionEntity func : getFunctions()) {
+				functions.computeIfAbsent(func.getRawName().getName(), k -> new ArrayList<>(1)).add(func);
+			}
+		}
+		if (vars != null) {
+			for (VarEntity var : getVars()) {
+				vars.computeIfAbsent(var.getRawName().getName(), k -> new ArrayList<>(1)).add(var);
+			}
+		}
+		for (TypeEntity inhertedType : getInheritedTypes()) {
+			inhertedType.collectMembers(functions, vars, searched);
+		}
+		for (TypeEntity implType : getImplementedTypes()) {
+			implType.collectMembers(functions, vars, searched);
+		}
+	}
+
+	/**
+	 * @return the first member whose raw name equals the name, as the search through the hierarchy finds
+	 */
+	private static <T extends Entity> T firstNamed(Map<String, List<T>> table, GenericName name) {
+		if (name == null) return null;
+		List<T> members = table.get(name.getName());
+		if (members == null) return null;
+		for (T member : members) {
+			if (member.getRawName().equals(name))
+				return member;
+		}
+		return null;
+	}
+
+	/**
+	 * Indexes of all types reachable through inherited types, the type itself is
+	 * not included unless there is a cycle.
+	 */
+	private BitSet inheritedClosure() {
+		if (inheritedClosure == null) {
+			BitSet closure = new BitSet();
+			Set<TypeEntity> searched = new HashSet<>();
+			Deque<TypeEntity> queue = new ArrayDeque<>(getInheritedTypes());
+			while (!queue.isEmpty()) {
+				TypeEntity type = queue.poll();
+				if (!searched.add(type)) continue;
+				if (type.hierarchyIndex >= 0)
+					closure.set(type.hierarchyIndex);
+				queue.addAll(type.getInheritedTypes());
+			}
+			inheritedClosure = closure;
+		}
+		return inheritedClosure;
+	}
+
 	@Override
 	public FunctionEntity lookupFunctionLocally(GenericName functionName) {
+		if (hierarchyIndex >= 0) {
+			return firstNamed(functionTable(), functionName);
+		}
 		Collection<TypeEntity> searchedTypes = new ArrayList<>();
 		return lookupFunctionLocally(functionName,searchedTypes);
 	}
@@ -153,6 +266,9 @@ public class TypeEntity extends ContainerEntity {
 	
 	@Override
 	public VarEntity lookupVarLocally(GenericName varName) {
+		if (hierarchyIndex >= 0) {
+			return firstNamed(varTable(), varName);
+		}
 		Collection<TypeEntity> searchedTypes = new ArrayList<>();
 		return lookupVarLocally(varName,searchedTypes);
 	}
@@ -212,6 +328,9 @@ public class TypeEntity extends ContainerEntity {
 		if (!strict && equals(other)) {
 			return true;
 		}
+		if (hierarchyIndex >= 0 && other.hierarchyIndex >= 0) {
+			return inheritedClosure().get(other.hierarchyIndex);
+		}
 		if (getInheritedTypes() != null) {
 			for (TypeEntity parentType : getInheritedTypes()) {
 				if (parentType.isTypeParent(other, false)) {
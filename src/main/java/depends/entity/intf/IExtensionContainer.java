@@ -1,5 +1,6 @@
 package depends.entity.intf;
 
+import depends.entity.ExtensionFunctionIndex;
 import depends.entity.FunctionEntity;
 import depends.entity.GenericName;
 import depends.entity.TypeEntity;
@@ -12,4 +13,15 @@ public interface IExtensionContainer {
             @NotNull TypeEntity type, @NotNull GenericName genericName,
             boolean searchPackage
     );
+
+    /**
+     * Same as {@link #lookupExtensionFunctionInVisibleScope(TypeEntity, GenericName, boolean)},
+     * but the extension functions could be found from the index if it is not null.
+     */
+    default @Nullable FunctionEntity lookupExtensionFunctionInVisibleScope(
+            @NotNull TypeEntity type, @NotNull GenericName genericName,
+            boolean searchPackage, @Nullable ExtensionFunctionIndex index
+    ) {
+        return lookupExtensionFunctionInVisibleScope(type, genericName, searchPackage);
+    }
 }
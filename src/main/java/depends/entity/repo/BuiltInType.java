@@ -27,11 +27,14 @@ package depends.entity.repo;
 import depends.entity.FunctionCall;
 import depends.entity.TypeEntity;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class BuiltInType {
+	/**
+	 * The verdicts cache is cleared once it grows over the size
+	 */
+	private static final int VERDICT_CACHE_SIZE = 1 << 16;
 
 	public BuiltInType(){
 		createBuiltInTypes();
@@ -40,15 +43,31 @@ public abstract class BuiltInType {
 	 * Init the build in types data
 	 */
 	private void createBuiltInTypes() {
-    	for(String prefix: getBuiltInTypePrefix()) {
-    		builtInPrefix.add(prefix);
-    	}
     	for (String type: getBuiltInTypeName()) {
     		builtInType.add(type);
     	}		
     	for (String method:getBuiltInMethods()) {
     		builtInMethod.add(method);
     	}
+    	builtInPrefix = compilePrefixes(getBuiltInTypePrefix());
+	}
+
+	/**
+	 * Sort the prefixes and drop the ones covered by a shorter prefix.
+	 * In such a prefix-free sorted array, the only prefix which could match
+	 * a name is the greatest one not greater than the name.
+	 * @param prefixes
+	 * @return
+	 */
+	private static String[] compilePrefixes(String[] prefixes) {
+		String[] sorted = Arrays.stream(prefixes).distinct().sorted().toArray(String[]::new);
+		List<String> compiled = new ArrayList<>();
+		for (String prefix : sorted) {
+			if (!compiled.isEmpty() && prefix.startsWith(compiled.get(compiled.size() - 1)))
+				continue;
+			compiled.add(prefix);
+		}
+		return compiled.toArray(new String[0]);
 	}
 	
 	protected String[] getBuiltInMethods(){return new String[]{};}
@@ -56,8 +75,10 @@ public abstract class BuiltInType {
 	protected String[] getBuiltInTypePrefix() {return new String[]{};}
 
 	private Set<String> builtInType = new HashSet<>();
-	private Set<String> builtInPrefix = new HashSet<>();
+	private String[] builtInPrefix = new String[]{};
 	private Set<String> builtInMethod = new HashSet<>();
+	private final String builtInTypeName = TypeEntity.buildInType.getRawName().uniqName();
+	private final Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
 
 	/**
 	 * To determine whether a type name is built-in
@@ -65,9 +86,16 @@ public abstract class BuiltInType {
 	 * @return
 	 */
 	public boolean isBuiltInType(String typeName) {
-		return TypeEntity.buildInType.getRawName().uniqName().equals(typeName) ||
+		if (typeName == null) return false;
+		Boolean verdict = verdicts.get(typeName);
+		if (verdict != null) return verdict;
+		verdict = builtInTypeName.equals(typeName) ||
 				builtInType.contains(typeName)||
 				isBuiltInTypePrefix(typeName);
+		if (verdicts.size() >= VERDICT_CACHE_SIZE)
+			verdicts.clear();
+		verdicts.put(typeName, verdict);
+		return verdict;
 	}
 
 	/**
@@ -78,10 +106,11 @@ public abstract class BuiltInType {
 	 * @return
 	 */
 	private boolean isBuiltInTypePrefix(String typeName) {
-		for (String prefix:builtInPrefix) {
-			if (typeName.startsWith(prefix)) return true;
-		}
-		return false;
+		int index = Arrays.binarySearch(builtInPrefix, typeName);
+		if (index >= 0) return true;
+		int floor = -index - 2;
+		if (floor < 0) return false;
+		return typeName.startsWith(builtInPrefix[floor]);
 	}
 
 	/**
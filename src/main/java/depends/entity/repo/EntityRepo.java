@@ -27,6 +27,7 @@ package depends.entity.repo;
 import depends.entity.Entity;
 import depends.entity.FileEntity;
 import depends.entity.GenericName;
+import depends.relations.RelationStore;
 
 import java.util.Collection;
 import java.util.Iterator;
@@ -36,6 +37,23 @@ public interface EntityRepo extends IdGenerator {
 
 	Entity getEntity(String entityName);
 
+	/**
+	 * Get entity by the name of {@code parentName + "." + childName}
+	 * without composing the name.
+	 * @param parentName the qualified name of parent
+	 * @param childName the last segment of the name
+	 * @return the entity, or null if not exist
+	 */
+	Entity getEntity(String parentName, String childName);
+
+	/**
+	 * Find the longest prefix (split by '.') of the given name which is a known entity name.
+	 * For example, if a.b is known but a.b.c is not, the length of a.b is returned for a.b.c.d
+	 * @param entityName the qualified name
+	 * @return the length of the prefix, or -1 if no prefix is known
+	 */
+	int longestKnownPrefix(String entityName);
+
 	Entity getEntity(Integer entityId);
 
 	Entity getEntity(GenericName rawName);
@@ -55,4 +73,9 @@ public interface EntityRepo extends IdGenerator {
 	FileEntity getFileEntity(String fileFullPath);
 
 	void completeFile(String fileFullPath);
+
+	/**
+	 * @return the store which keeps the relations of entities in this repo
+	 */
+	RelationStore getRelationStore();
 }
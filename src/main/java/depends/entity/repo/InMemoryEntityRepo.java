@@ -1,7 +1,8 @@
 package depends.entity.repo;
 
 import depends.entity.*;
-import multilang.depends.util.file.FileUtil;
+import depends.relations.RelationStore;
+import depends.utils.PathCache;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -28,14 +29,16 @@ public class InMemoryEntityRepo extends SimpleIdGenerator implements EntityRepo
 		
 	}
 	
-	private Map<String, Entity> allEntieisByName;
+	private QualifiedNameTrie<Entity> allEntieisByName;
 	private Map<Integer, Entity> allEntitiesById;
 	private List<Entity> allFileEntitiesByOrder;
+	private RelationStore relationStore;
 
 	public InMemoryEntityRepo() {
-		allEntieisByName = new TreeMap<>();
+		allEntieisByName = new QualifiedNameTrie<>();
 		allEntitiesById = new TreeMap<>();
 		allFileEntitiesByOrder = new LinkedList<>();
+		relationStore = new RelationStore(this);
 		add(TypeEntity.buildInType);
 	}
 
@@ -44,6 +47,16 @@ public class InMemoryEntityRepo extends SimpleIdGenerator implements EntityRepo
 		return allEntieisByName.get(entityName);
 	}
 
+	@Override
+	public Entity getEntity(String parentName, String childName) {
+		return allEntieisByName.getChild(parentName, childName);
+	}
+
+	@Override
+	public int longestKnownPrefix(String entityName) {
+		return allEntieisByName.longestPrefix(entityName);
+	}
+
 	@Override
 	public Entity getEntity(Integer entityId) {
 		return allEntitiesById.get(entityId);
@@ -52,12 +65,13 @@ public class InMemoryEntityRepo extends SimpleIdGenerator implements EntityRepo
 	@Override
 	public void add(Entity entity) {
 		allEntitiesById.put(entity.getId(), entity);
+		entity.setRelationStore(relationStore);
 		String name = entity.getRawName().uniqName();
 		if (entity.getQualifiedName() != null && !(entity.getQualifiedName().isEmpty())) {
 			name = entity.getQualifiedName();
 		}
-		if (allEntieisByName.containsKey(name)) {
-			Entity existedEntity = allEntieisByName.get(name);
+		Entity existedEntity = allEntieisByName.get(name);
+		if (existedEntity != null) {
 			if (existedEntity instanceof MultiDeclareEntities) {
 				((MultiDeclareEntities) existedEntity).add(entity);
 			} else {
@@ -102,11 +116,17 @@ public class InMemoryEntityRepo extends SimpleIdGenerator implements EntityRepo
 		allEntieisByName.clear();
 		allEntitiesById.clear();
 		allFileEntitiesByOrder.clear();
+		relationStore.clear();
+	}
+
+	@Override
+	public RelationStore getRelationStore() {
+		return relationStore;
 	}
 
 	@Override
 	public FileEntity getFileEntity(String fileFullPath) {
-		fileFullPath = FileUtil.uniqFilePath(fileFullPath);
+		fileFullPath = PathCache.uniqFilePath(fileFullPath);
 		Entity entity = this.getEntity(fileFullPath);
 		if (entity ==null) return null;
 		if (entity instanceof FileEntity) return (FileEntity) entity;
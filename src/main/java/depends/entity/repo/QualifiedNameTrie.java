@@ -0,0 +1,163 @@
+package depends.entity.repo;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+
+/**
+ * A trie over the '.' separated segments of qualified names.<br>
+ * 以'.'分隔的限定名的分段前缀树
+ * <p>
+ * A prefix trie answers "which is the longest known prefix of a.b.c" in O(segments).
+ * A suffix trie (see {@link #suffixTrie()}) stores the segments in reverse order,
+ * so it answers "which name ends with b.c" in O(segments).
+ * <p>
+ * Segments are split exactly the same way as {@code name.substring(0, name.lastIndexOf('.'))}
+ * strips them, so empty segments (e.g. in "a..b") are kept.
+ *
+ * @param <T> the value type
+ */
+public class QualifiedNameTrie<T> {
+	private static class Node<T> {
+		HashMap<String, Node<T>> children;
+		T value;
+		/**
+		 * The value inserted first in the subtree, only maintained by suffix tries
+		 */
+		T firstInSubtree;
+
+		Node<T> child(String segment) {
+			if (children == null) return null;
+			return children.get(segment);
+		}
+
+		Node<T> childOrCreate(String segment) {
+			if (children == null)
+				children = new HashMap<>(4);
+			return children.computeIfAbsent(segment, k -> new Node<>());
+		}
+	}
+
+	private final boolean reversed;
+	private Node<T> root = new Node<>();
+
+	public QualifiedNameTrie() {
+		this(false);
+	}
+
+	private QualifiedNameTrie(boolean reversed) {
+		this.reversed = reversed;
+	}
+
+	/**
+	 * @return a trie which indexes the names from the last segment to the first one
+	 */
+	public static <T> QualifiedNameTrie<T> suffixTrie() {
+		return new QualifiedNameTrie<>(true);
+	}
+
+	/**
+	 * Put the value of the name. The value of an existed name will be replaced.
+	 */
+	public void put(String name, T value) {
+		Node<T> node = root;
+		if (reversed) {
+			int end = name.length();
+			while (true) {
+				if (node.firstInSubtree == null) node.firstInSubtree = value;
+				int start = name.lastIndexOf('.', end - 1);
+				node = node.childOrCreate(name.substring(start + 1, end));
+				if (start < 0) break;
+				end = start;
+			}
+			if (node.firstInSubtree == null) node.firstInSubtree = value;
+		} else {
+			int start = 0;
+			while (true) {
+				int end = name.indexOf('.', start);
+				if (end < 0) {
+					node = node.childOrCreate(name.substring(start));
+					break;
+				}
+				node = node.childOrCreate(name.substring(start, end));
+				start = end + 1;
+			}
+		}
+		node.value = value;
+	}
+
+	public @Nullable T get(String name) {
+		Node<T> node = find(root, name);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * Get the value of {@code name + "." + segment} without composing the name.
+	 */
+	public @Nullable T getChild(String name, String segment) {
+		if (reversed) return get(name + "." + segment);
+		Node<T> node = find(root, name);
+		if (node == null) return null;
+		node = node.child(segment);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * Find the longest prefix of the name which has a value.
+	 * Only prefixes ending at a segment boundary are considered.
+	 *
+	 * @return the length of the prefix, or -1 if there is no such prefix
+	 */
+	public int longestPrefix(String name) {
+		if (reversed)
+			throw new UnsupportedOperationException("longestPrefix is not supported by suffix trie");
+		Node<T> node = root;
+		int result = -1;
+		int start = 0;
+		while (true) {
+			int end = name.indexOf('.', start);
+			node = node.child(end < 0 ? name.substring(start) : name.substring(start, end));
+			if (node == null) return result;
+			if (node.value != null) result = end < 0 ? name.length() : end;
+			if (end < 0) return result;
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Find the first inserted name which equals to the given name or ends with "." + name.
+	 *
+	 * @return the value of the matched name, or null if not matched
+	 */
+	public @Nullable T suffixMatch(String name) {
+		if (!reversed)
+			throw new UnsupportedOperationException("suffixMatch is only supported by suffix trie");
+		Node<T> node = find(root, name);
+		return node == null ? null : node.firstInSubtree;
+	}
+
+	public void clear() {
+		root = new Node<>();
+	}
+
+	private Node<T> find(Node<T> node, String name) {
+		if (reversed) {
+			int end = name.length();
+			while (node != null) {
+				int start = name.lastIndexOf('.', end - 1);
+				node = node.child(name.substring(start + 1, end));
+				if (start < 0) break;
+				end = start;
+			}
+			return node;
+		}
+		int start = 0;
+		while (node != null) {
+			int end = name.indexOf('.', start);
+			if (end < 0) return node.child(name.substring(start));
+			node = node.child(name.substring(start, end));
+			start = end + 1;
+		}
+		return null;
+	}
+}
@@ -32,8 +32,7 @@ import depends.entity.repo.InMemoryEntityRepo;
 import depends.relations.BindingResolver;
 import depends.relations.ImportLookupStrategy;
 import depends.relations.IBindingResolver;
-import multilang.depends.util.file.FileTraversal;
-import multilang.depends.util.file.FileUtil;
+import depends.utils.PathCache;
 import org.antlr.v4.runtime.tree.ParseTreeListener;
 import org.codehaus.plexus.util.FileUtils;
 import org.slf4j.Logger;
@@ -116,6 +115,7 @@ abstract public class AbstractLangProcessor {
 		this.inputSrcPath = inputDir;
 		this.includeDirs = includeDir;
 		this.bindingResolver = bindingResolver;
+		PathCache.clear();
 		logger.info("Start parsing files...");
 		parseAllFiles();
 		markAllEntitiesScope();
@@ -161,15 +161,10 @@ abstract public class AbstractLangProcessor {
 	private final void parseAllFiles() {
 		System.out.println("Start parsing files...");
 		Set<String> phase2Files = new HashSet<>();
-		FileTraversal fileTransversal = new FileTraversal(file -> {
-			String fileFullPath = file.getAbsolutePath();
-			if (!fileFullPath.startsWith(inputSrcPath)) {
-				return;
-			}
-			parseFile(fileFullPath, phase2Files);
-		});
-		fileTransversal.extensionFilter(this.fileSuffixes());
-		fileTransversal.travers(this.inputSrcPath);
+		try (SourcePipeline pipeline = new SourcePipeline(this.inputSrcPath, this.fileSuffixes(),
+				fileFullPath -> fileFullPath.startsWith(inputSrcPath))) {
+			pipeline.forEach(fileFullPath -> parseFile(fileFullPath, phase2Files));
+		}
 		for (String f : phase2Files) {
 			parseFile(f, phase2Files);
 		}
@@ -204,13 +199,13 @@ abstract public class AbstractLangProcessor {
 		includePaths = new ArrayList<>();
 		for (String path : includeDirs) {
 			if (FileUtils.fileExists(path)) {
-				path = FileUtil.uniqFilePath(path);
+				path = PathCache.uniqFilePath(path);
 				if (!includePaths.contains(path))
 					includePaths.add(path);
 			}
 			path = this.inputSrcPath + File.separator + path;
 			if (FileUtils.fileExists(path)) {
-				path = FileUtil.uniqFilePath(path);
+				path = PathCache.uniqFilePath(path);
 				if (!includePaths.contains(path))
 					includePaths.add(path);
 			}
@@ -0,0 +1,106 @@
+package depends.extractor;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An ANTLR {@link CharStream} reading ASCII characters directly from a (memory-mapped) byte buffer.<br>
+ * 直接从(内存映射的)字节缓冲区读取ASCII字符的ANTLR字符流
+ * <p>
+ * Each byte is a character, so the source is neither copied nor decoded.
+ * Only the text of tokens is built as strings when it is asked.
+ * Use {@link #isAscii(ByteBuffer)} to check the content before it is used.
+ */
+public class ByteBufferCharStream implements CharStream {
+	private final ByteBuffer buffer;
+	private final int size;
+	private final String name;
+	private int position = 0;
+
+	public ByteBufferCharStream(ByteBuffer buffer, String name) {
+		this.buffer = buffer.slice();
+		this.size = this.buffer.remaining();
+		this.name = name;
+	}
+
+	public static boolean isAscii(ByteBuffer buffer) {
+		for (int i = buffer.position(); i < buffer.limit(); i++) {
+			if (buffer.get(i) < 0) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String getText(Interval interval) {
+		int start = Math.min(interval.a, size);
+		int stop = Math.min(interval.b, size - 1);
+		if (stop < start) return "";
+		byte[] bytes = new byte[stop - start + 1];
+		buffer.get(start, bytes);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+
+	@Override
+	public void consume() {
+		if (size - position == 0) {
+			throw new IllegalStateException("cannot consume EOF");
+		}
+		position++;
+	}
+
+	@Override
+	public int LA(int i) {
+		int offset;
+		switch (Integer.signum(i)) {
+			case -1:
+				offset = position + i;
+				if (offset < 0) return IntStream.EOF;
+				return buffer.get(offset);
+			case 0:
+				return 0;
+			default:
+				offset = position + i - 1;
+				if (offset >= size) return IntStream.EOF;
+				return buffer.get(offset);
+		}
+	}
+
+	@Override
+	public int mark() {
+		return -1;
+	}
+
+	@Override
+	public void release(int marker) {
+	}
+
+	@Override
+	public int index() {
+		return position;
+	}
+
+	@Override
+	public void seek(int index) {
+		position = index;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String getSourceName() {
+		if (name == null || name.isEmpty()) return UNKNOWN_SOURCE_NAME;
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return getText(Interval.of(0, size - 1));
+	}
+}
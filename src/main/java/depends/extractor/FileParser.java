@@ -26,16 +26,92 @@ package depends.extractor;
 
 import depends.entity.FileEntity;
 import depends.entity.repo.EntityRepo;
-import multilang.depends.util.file.FileUtil;
+import depends.utils.PathCache;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CodePointBuffer;
+import org.antlr.v4.runtime.CodePointCharStream;
 import org.antlr.v4.runtime.tree.ParseTreeListener;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
 public abstract class FileParser {
+	/* files smaller than it are read into heap, since a mapping is only released by GC and locks the file on Windows */
+	static final int MAP_THRESHOLD = 1024 * 1024;
 	protected EntityRepo entityRepo;
+	/* content of the file being parsed, kept so it is read and decoded only once */
+	private String contentPath;
+	private ByteBuffer content;
+	private CodePointBuffer decodedContent;
+
+
+	/**
+	 * The content of the file to be parsed. Small files are read into heap, large files are memory-mapped.
+	 *
+	 * @param filePath - it is alread unique file path name
+	 * @return the read-only content
+	 * @throws IOException
+	 */
+	protected ByteBuffer readSource(@NotNull String filePath) throws IOException {
+		if (filePath.equals(contentPath))
+			return content.duplicate();
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < MAP_THRESHOLD) {
+				buffer = ByteBuffer.allocate((int) size);
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+					// read until the end
+				}
+				buffer.flip();
+			} else {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+		}
+		contentPath = filePath;
+		content = buffer;
+		decodedContent = null;
+		return content.duplicate();
+	}
+
+	/**
+	 * The content of the file to be parsed as an ANTLR char stream.
+	 * ASCII files are read from the bytes of {@link #readSource(String)} without any copy;
+	 * other files are decoded as UTF-8 only once, however many streams are opened for the file.
+	 *
+	 * @param filePath - it is alread unique file path name
+	 * @throws IOException
+	 */
+	protected CharStream openCharStream(@NotNull String filePath) throws IOException {
+		ByteBuffer bytes = readSource(filePath);
+		if (decodedContent == null) {
+			if (ByteBufferCharStream.isAscii(bytes))
+				return new ByteBufferCharStream(bytes, filePath);
+			CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE)
+					.decode(bytes);
+			CodePointBuffer.Builder builder = CodePointBuffer.builder(chars.remaining());
+			builder.append(chars);
+			decodedContent = builder.build();
+		}
+		return CodePointCharStream.fromBuffer(decodedContent, filePath);
+	}
+
+	private void releaseSource() {
+		contentPath = null;
+		content = null;
+		decodedContent = null;
+	}
 
 	/**
 	 * parse files
@@ -54,7 +130,7 @@ public abstract class FileParser {
 	 * @throws IOException
 	 */
 	public final void parse(String filePath, List<ParseTreeListener> extraListeners) throws IOException{
-		filePath = FileUtil.uniqFilePath(filePath);
+		filePath = PathCache.uniqFilePath(filePath);
 		/* If file already exist, skip it */
 		FileEntity fileEntity = entityRepo.getFileEntity(filePath);
 		if (fileEntity!=null) {
@@ -71,7 +147,11 @@ public abstract class FileParser {
 				return false;
 			});
 			if(!skip) {
-				parseFile(filePath, extraListeners);
+				try {
+					parseFile(filePath, extraListeners);
+				} finally {
+					releaseSource();
+				}
 			}
 			extraListeners.forEach(listener -> {
 				if (listener instanceof IFileListener fileListener) {
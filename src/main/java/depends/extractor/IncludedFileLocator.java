@@ -24,7 +24,7 @@ SOFTWARE.
 
 package depends.extractor;
 
-import multilang.depends.util.file.FileUtil;
+import depends.utils.PathCache;
 
 import java.io.File;
 import java.util.List;
@@ -48,14 +48,14 @@ public final class IncludedFileLocator {
 	 * @return
 	 */
 	public String uniqFileName(String dirPath, String importedFilename) {
-		if (FileUtil.existFile(importedFilename)) return FileUtil.uniqFilePath(importedFilename);
+		if (PathCache.existFile(importedFilename)) return PathCache.uniqFilePath(importedFilename);
 		if (dirPath!=null) {
 			String path = dirPath + File.separator + importedFilename;
-			if (FileUtil.existFile(path)) return FileUtil.uniqFilePath(path);
+			if (PathCache.existFile(path)) return PathCache.uniqFilePath(path);
 		}
 		for (String includePath:includesPath) {
 			String path = includePath + File.separator + importedFilename;
-			if (FileUtil.existFile(path)) return FileUtil.uniqFilePath(path);
+			if (PathCache.existFile(path)) return PathCache.uniqFilePath(path);
 		}
 		return null;
 	}
@@ -0,0 +1,110 @@
+package depends.extractor;
+
+import multilang.depends.util.file.FileTraversal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Pipeline from file discovery to parsing.<br>
+ * 从文件发现到解析的流水线
+ * <p>
+ * A discovery thread walks the directories and finds the source files,
+ * while the consumer (the parser) takes the files in the order they are found.
+ * The ready queue is bounded, so a slow parser holds back the discovery
+ * instead of buffering the whole source tree in memory.
+ * The busy time of the consumer is logged when the pipeline is closed.
+ */
+public class SourcePipeline implements Closeable {
+	private static final int DEFAULT_CAPACITY = 1024;
+	/* compared by identity, never a path */
+	private static final String END = new String("<end of files>");
+	private static Logger logger = LoggerFactory.getLogger(SourcePipeline.class);
+
+	private final BlockingQueue<String> ready;
+	private long consumerBusyNanos = 0;
+	private int consumedFiles = 0;
+	private final Thread discovery;
+	private volatile RuntimeException failure;
+
+	public SourcePipeline(String inputDir, String[] suffixes, Predicate<String> filter) {
+		this(inputDir, suffixes, filter, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param filter   only the files whose absolute paths are accepted are parsed
+	 * @param capacity capacity of the ready queue
+	 */
+	public SourcePipeline(String inputDir, String[] suffixes, Predicate<String> filter, int capacity) {
+		this.ready = new ArrayBlockingQueue<>(capacity);
+		this.discovery = new Thread(() -> discover(inputDir, suffixes, filter), "depends-source-discovery");
+		this.discovery.setDaemon(true);
+		this.discovery.start();
+	}
+
+	private void discover(String inputDir, String[] suffixes, Predicate<String> filter) {
+		try {
+			FileTraversal fileTraversal = new FileTraversal(file -> {
+				String path = file.getAbsolutePath();
+				if (!filter.test(path)) return;
+				put(path);
+			});
+			fileTraversal.extensionFilter(suffixes);
+			fileTraversal.travers(inputDir);
+		} catch (RuntimeException e) {
+			if (!(e.getCause() instanceof InterruptedException))
+				failure = e;
+		} finally {
+			try {
+				ready.put(END);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void put(String path) {
+		try {
+			ready.put(path);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			// stop the traversal
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Hand the paths of all files to the consumer in the order they are found. It returns when all files are consumed.
+	 */
+	public void forEach(Consumer<String> consumer) {
+		try {
+			while (true) {
+				String path = ready.take();
+				if (path == END) break;
+				long start = System.nanoTime();
+				consumer.accept(path);
+				consumerBusyNanos += System.nanoTime() - start;
+				consumedFiles++;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	@Override
+	public void close() {
+		discovery.interrupt();
+		ready.clear();
+		if (logger.isInfoEnabled()) {
+			logger.info(String.format("parser busy time: %dms/%d files", consumerBusyNanos / 1_000_000, consumedFiles));
+		}
+	}
+}
@@ -29,14 +29,15 @@ import depends.matrix.core.DependencyDetail;
 import depends.matrix.core.DependencyMatrix;
 import depends.matrix.core.DependencyPair;
 import depends.matrix.core.DependencyValue;
+import depends.matrix.core.SpilledDetailStore;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class DetailTextFormatDependencyDumper extends AbstractFormatDependencyDumper{
-	ArrayList<String> files;
+	List<String> files;
 	@Override
 	public String getFormatName() {
 		return "detail";
@@ -50,8 +51,12 @@ public class DetailTextFormatDependencyDumper extends AbstractFormatDependencyDu
 		try {
 			files = matrix.getNodes();
 			writer = new PrintWriter(composeFilename() +".txt");
-	        Collection<DependencyPair> dependencyPairs = matrix.getDependencyPairs();
-	        addRelations(writer,dependencyPairs); 
+	        if (matrix.hasSpilledDetails()) {
+	        	addRelationsWithSpilledDetails(writer);
+	        } else {
+	        	Collection<DependencyPair> dependencyPairs = matrix.getDependencyPairs();
+	        	addRelations(writer,dependencyPairs);
+	        }
 			writer.close();
 			return true;
 		} catch (FileNotFoundException e) {
@@ -60,6 +65,18 @@ public class DetailTextFormatDependencyDumper extends AbstractFormatDependencyDu
 		}
 	}
 
+	private void addRelationsWithSpilledDetails(PrintWriter writer) {
+		try (SpilledDetailStore.Cursor cursor = matrix.openDetailCursor()) {
+			for (DependencyPair dependencyPair : matrix.getDependencyPairsInOrder()) {
+				int src = dependencyPair.getFrom();
+				int dst = dependencyPair.getTo();
+				writer.println("======="+files.get(src) + " -> " + files.get(dst) + "=========");
+				cursor.forEachDetail(dependencyPair, (type, item) ->
+						writer.println("["+type+"]"+item.getSrc() + "->" + item.getDest()));
+			}
+		}
+	}
+
 	private void addRelations(PrintWriter writer, Collection<DependencyPair> dependencyPairs) {
 		for (DependencyPair dependencyPair:dependencyPairs) {
             int src = dependencyPair.getFrom();
@@ -26,8 +26,8 @@ package depends.format.dot;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import depends.format.AbstractFormatDependencyDumper;
 import depends.matrix.core.DependencyMatrix;
@@ -46,7 +46,7 @@ public class DotFormatDependencyDumper extends  AbstractFormatDependencyDumper{
 		PrintWriter writer;
 		try {
 			writer = new PrintWriter(composeFilename()+".dot");
-			ArrayList<String> files = matrix.getNodes();
+			List<String> files = matrix.getNodes();
 			
 			for (int i=0;i<files.size();i++) {
 				String file = files.get(i);
@@ -26,15 +26,15 @@ package depends.format.dot;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import depends.format.AbstractFormatDependencyDumper;
 import depends.matrix.core.DependencyMatrix;
 import depends.matrix.core.DependencyPair;
 
 public class DotFullnameDependencyDumper extends  AbstractFormatDependencyDumper{
-	ArrayList<String> files  = null;
+	List<String> files  = null;
 	@Override
 	public String getFormatName() {
 		return "dotx";
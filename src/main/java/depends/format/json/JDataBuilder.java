@@ -24,19 +24,28 @@ SOFTWARE.
 
 package depends.format.json;
 
+import java.io.IOException;
 import java.util.*;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import depends.format.FileAttributes;
 import depends.matrix.core.DependencyDetail;
 import depends.matrix.core.DependencyMatrix;
 import depends.matrix.core.DependencyPair;
 import depends.matrix.core.DependencyValue;
+import depends.matrix.core.SpilledDetailStore;
 
 public class JDataBuilder {
+	/**
+	 * Build the whole object tree in heap. For a matrix with spilled details,
+	 * use {@link #write(DependencyMatrix, FileAttributes, JsonGenerator)} instead.
+	 */
 	public JDepObject build(DependencyMatrix dependencyMatrix, FileAttributes attribute) {
-		ArrayList<String> files = dependencyMatrix.getNodes();
+		List<String> files = dependencyMatrix.getNodes();
 		Collection<DependencyPair> dependencyPairs = dependencyMatrix.getDependencyPairs();
-		ArrayList<JCellObject> cellObjects = buildCellObjects(dependencyPairs); // transform finalRes into cellObjects
+		ArrayList<JCellObject> cellObjects = dependencyMatrix.hasSpilledDetails() ?
+				buildCellObjectsWithSpilledDetails(dependencyMatrix) :
+				buildCellObjects(dependencyPairs); // transform finalRes into cellObjects
 
 		JDepObject depObject = new JDepObject();
 		Map<Integer, String> filesWithIndex = new LinkedHashMap<>();
@@ -67,6 +76,85 @@ public class JDataBuilder {
 		return cellObjects;
 	}
 
+	/**
+	 * Build cells in the order of (from, to), so the spilled details could be read sequentially
+	 */
+	private ArrayList<JCellObject> buildCellObjectsWithSpilledDetails(DependencyMatrix dependencyMatrix) {
+		ArrayList<JCellObject> cellObjects = new ArrayList<>();
+		try (SpilledDetailStore.Cursor cursor = dependencyMatrix.openDetailCursor()) {
+			for (DependencyPair dependencyPair : dependencyMatrix.getDependencyPairsInOrder()) {
+				List<DetailItem> details = new ArrayList<>();
+				cursor.forEachDetail(dependencyPair, (type, detail) ->
+						details.add(new DetailItem(detail.getSrc(), detail.getDest(), type)));
+				JCellObject cellObject = new JCellObject();
+				cellObject.setSrc(dependencyPair.getFrom());
+				cellObject.setDest(dependencyPair.getTo());
+				cellObject.setValues(buildValueObject(dependencyPair.getDependencies()));
+				cellObject.setDetails(details);
+				cellObjects.add(cellObject);
+			}
+		}
+		return cellObjects;
+	}
+
+	/**
+	 * Write the same document as {@link #build(DependencyMatrix, FileAttributes)} cell by cell,
+	 * so that only one cell and its details are in heap at a time.
+	 * The cells are in the order of (from, to), so the spilled details are read sequentially.
+	 */
+	public void write(DependencyMatrix dependencyMatrix, FileAttributes attribute, JsonGenerator generator) throws IOException {
+		List<String> files = dependencyMatrix.getNodes();
+		generator.writeStartObject();
+		generator.writeStringField("schemaVersion", attribute.getSchemaVersion());
+		generator.writeStringField("name", attribute.getAttributeName());
+		generator.writeObjectFieldStart("variables");
+		for (int i = 0; i < files.size(); i++) {
+			generator.writeStringField(String.valueOf(i), files.get(i));
+		}
+		generator.writeEndObject();
+		generator.writeArrayFieldStart("cells");
+		if (dependencyMatrix.hasSpilledDetails()) {
+			try (SpilledDetailStore.Cursor cursor = dependencyMatrix.openDetailCursor()) {
+				for (DependencyPair dependencyPair : dependencyMatrix.getDependencyPairsInOrder()) {
+					writeCellStart(dependencyPair, generator);
+					writeSpilledDetails(cursor, dependencyPair, generator);
+					writeCellEnd(generator);
+				}
+			}
+		} else {
+			for (DependencyPair dependencyPair : dependencyMatrix.getDependencyPairs()) {
+				writeCellStart(dependencyPair, generator);
+				for (DetailItem detail : buildDetails(dependencyPair.getDependencies())) {
+					generator.writeObject(detail);
+				}
+				writeCellEnd(generator);
+			}
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+	}
+
+	private void writeCellStart(DependencyPair dependencyPair, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		generator.writeNumberField("src", dependencyPair.getFrom());
+		generator.writeNumberField("dest", dependencyPair.getTo());
+		generator.writeObjectField("values", buildValueObject(dependencyPair.getDependencies()));
+		generator.writeArrayFieldStart("details");
+	}
+
+	private void writeSpilledDetails(SpilledDetailStore.Cursor cursor, DependencyPair dependencyPair, JsonGenerator generator) throws IOException {
+		List<DetailItem> details = new ArrayList<>();
+		cursor.forEachDetail(dependencyPair, (type, detail) -> details.add(new DetailItem(detail.getSrc(), detail.getDest(), type)));
+		for (DetailItem detail : details) {
+			generator.writeObject(detail);
+		}
+	}
+
+	private void writeCellEnd(JsonGenerator generator) throws IOException {
+		generator.writeEndArray();
+		generator.writeEndObject();
+	}
+
 	private List<DetailItem> buildDetails(Collection<DependencyValue> dependencies) {
 		List<DetailItem>  r = new ArrayList<>();
 		for (DependencyValue dependency : dependencies) {
@@ -74,7 +162,6 @@ public class JDataBuilder {
 				r.add(new DetailItem(detail.getSrc(),detail.getDest(),dependency.getType()));
 			}
 		}
-		if (r.isEmpty()) return null;
 		return r;
 	}
 
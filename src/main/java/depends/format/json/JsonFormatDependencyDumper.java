@@ -26,6 +26,8 @@ package depends.format.json;
 
 import java.io.File;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import depends.format.AbstractFormatDependencyDumper;
@@ -45,11 +47,29 @@ public class JsonFormatDependencyDumper extends AbstractFormatDependencyDumper {
 	@Override
 	public boolean output() {
 		JDataBuilder jBuilder = new JDataBuilder();
+		if (matrix.hasSpilledDetails()) {
+			return toJson(jBuilder, composeFilename() + ".json");
+		}
 		JDepObject jDepObject = jBuilder.build(matrix, new FileAttributes(name));
 		toJson(jDepObject, composeFilename()+ ".json");
 		return true;
 	}
 
+	/**
+	 * Stream the cells, so the spilled details are never all in heap
+	 */
+	private boolean toJson(JDataBuilder jBuilder, String jsonFileName) {
+		ObjectMapper mapper = new ObjectMapper();
+		try (JsonGenerator generator = mapper.getFactory().createGenerator(new File(jsonFileName), JsonEncoding.UTF8)) {
+			generator.useDefaultPrettyPrinter();
+			jBuilder.write(matrix, new FileAttributes(name), generator);
+			return true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
 	
 
 	private void toJson(JDepObject depObject, String jsonFileName) {
@@ -2,9 +2,9 @@ package depends.format.plantuml;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
 import depends.format.AbstractFormatDependencyDumper;
 import depends.matrix.core.DependencyMatrix;
@@ -27,7 +27,7 @@ public class BriefPlantUmlFormatDependencyDumper extends AbstractFormatDependenc
 		PrintWriter writer;
 		try {
 			writer = new PrintWriter(composeFilename()+".uml");
-			ArrayList<String> files = matrix.getNodes();
+			List<String> files = matrix.getNodes();
 
             for (String file : files) {
                 writer.println("class " + " " + file);
@@ -2,10 +2,10 @@ package depends.format.plantuml;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.List;
 
 import depends.deptypes.DependencyType;
 import depends.format.AbstractFormatDependencyDumper;
@@ -29,7 +29,7 @@ public class PlantUmlFormatDependencyDumper extends AbstractFormatDependencyDump
 		PrintWriter writer;
 		try {
 			writer = new PrintWriter(composeFilename()+".uml");
-			ArrayList<String> files = matrix.getNodes();
+			List<String> files = matrix.getNodes();
 
             for (String file : files) {
                 writer.println("class " + " " + file);
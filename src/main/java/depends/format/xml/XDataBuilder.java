@@ -34,7 +34,7 @@ import depends.matrix.core.DependencyValue;
 
 public class XDataBuilder {
     public XDepObject build(DependencyMatrix matrix,FileAttributes attribute) {
-        ArrayList<String> files = matrix.getNodes();
+        ArrayList<String> files = new ArrayList<>(matrix.getNodes());
         Collection<DependencyPair> dependencyPairs = matrix.getDependencyPairs();
 
         XFiles xFiles = new XFiles();
@@ -24,16 +24,20 @@ SOFTWARE.
 
 package depends.generator;
 
+import depends.deptypes.DependencyTypeRegistry;
 import depends.entity.CandidateTypes;
 import depends.entity.Entity;
 import depends.entity.EntityNameBuilder;
 import depends.entity.FileEntity;
 import depends.entity.repo.EntityRepo;
 import depends.matrix.core.DependencyDetail;
+import depends.matrix.core.DependencyDetails;
 import depends.matrix.core.DependencyMatrix;
 import depends.matrix.core.LocationInfo;
+import depends.matrix.core.SpilledDetailStore;
 import depends.matrix.transform.OrderedMatrixGenerator;
-import depends.relations.Relation;
+import depends.relations.RelationSink;
+import depends.relations.RelationStore;
 import depends.utils.EntityUtils;
 import multilang.depends.util.file.path.EmptyFilenameWritter;
 import multilang.depends.util.file.path.FilenameWritter;
@@ -42,12 +46,7 @@ import multilang.depends.util.file.strip.ILeadingNameStrippper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
-
-import static depends.deptypes.DependencyType.POSSIBLE_DEP;
+import java.util.*;
 
 public abstract class DependencyGenerator {
 
@@ -59,6 +58,21 @@ public abstract class DependencyGenerator {
 	public DependencyMatrix identifyDependencies(EntityRepo entityRepo, List<String> typeFilter, boolean showLanguage) {
 		System.out.println("dependencie data generating...");
 		DependencyMatrix dependencyMatrix = build(entityRepo, typeFilter, showLanguage);
+		return reorder(dependencyMatrix);
+	}
+
+	/**
+	 * Identify dependencies from the relations which have been streamed into the builder
+	 *
+	 * @param builder created by {@link #createMatrixBuilder(EntityRepo, List, boolean)}
+	 * @return the generated dependency matrix
+	 */
+	public DependencyMatrix identifyDependencies(MatrixBuilder builder) {
+		System.out.println("dependencie data generating...");
+		return reorder(builder.build());
+	}
+
+	private DependencyMatrix reorder(DependencyMatrix dependencyMatrix) {
 		System.out.println("reorder dependency matrix...");
 		dependencyMatrix = new OrderedMatrixGenerator(dependencyMatrix).build();
 		System.out.println("Dependencies data generating done successfully...");
@@ -73,52 +87,129 @@ public abstract class DependencyGenerator {
 	 * @return the generated dependency matrix
 	 */
 	public DependencyMatrix build(EntityRepo entityRepo, List<String> typeFilter, boolean showLanguage) {
-		DependencyMatrix dependencyMatrix = new DependencyMatrix(0, outputSelfDependencies);
+		MatrixBuilder builder = new MatrixBuilder(entityRepo, typeFilter, showLanguage);
 		Iterator<Entity> iterator = entityRepo.entityIterator();
 		System.out.println("Start create dependencies matrix....");
 		while (iterator.hasNext()) {
 			Entity entity = iterator.next();
 			if (!entity.inScope()) continue;
+			builder.addNodeOf(entity);
+			int entityFrom = upToOutputLevelEntityId(entityRepo, entity);
+			if (entityFrom == -1) continue;
+			entity.forEachRelation((relatedEntity, relationType, fromLine, possible) ->
+					builder.addRelation(entity, entityFrom, relatedEntity, relationType, fromLine, possible));
+		}
+		System.out.println("Finish create dependencies matrix....");
+		return builder.dependencyMatrix;
+	}
+
+	/**
+	 * Create a builder which receives relations from {@link depends.relations.RelationCounter} directly,
+	 * so the relations need not be kept on entities.
+	 */
+	public MatrixBuilder createMatrixBuilder(EntityRepo entityRepo, List<String> typeFilter, boolean showLanguage) {
+		return new MatrixBuilder(entityRepo, typeFilter, showLanguage);
+	}
+
+	/**
+	 * Adds relations into the dependency matrix of this generator
+	 */
+	public class MatrixBuilder implements RelationSink, DependencyDetails.Materializer {
+		private final EntityRepo entityRepo;
+		private final BitSet typeFilterCodes;
+		private final boolean showLanguage;
+		private final DependencyMatrix dependencyMatrix = new DependencyMatrix(0, outputSelfDependencies);
+
+		private MatrixBuilder(EntityRepo entityRepo, List<String> typeFilter, boolean showLanguage) {
+			this.entityRepo = entityRepo;
+			this.typeFilterCodes = toTypeCodes(typeFilter);
+			this.showLanguage = showLanguage;
+			if (generateDetail && detailHeapBudget > 0) {
+				dependencyMatrix.spillDetails(new SpilledDetailStore(detailHeapBudget, this));
+			}
+		}
+
+		@Override
+		public void onRelation(Entity from, Entity to, int type, int line, boolean possible) {
+			if (!from.inScope()) return;
+			// only relations of entities in the repo are output, same as build()
+			if (entityRepo.getEntity(from.getId()) != from) return;
+			int entityFrom = upToOutputLevelEntityId(entityRepo, from);
+			if (entityFrom == -1) return;
+			addRelation(from, entityFrom, to, type, line, possible);
+		}
+
+		private void addNodeOf(Entity entity) {
 			if (outputLevelMatch(entity)) {
 				dependencyMatrix.addNode(nameOf(entity), entity.getId());
 			}
-			int entityFrom = upToOutputLevelEntityId(entityRepo, entity);
-			if (entityFrom == -1) continue;
-			for (Relation relation : entity.getRelations()) {
-				Entity relatedEntity = relation.getEntity();
-				if (relatedEntity == null) continue;
-				List<Entity> relatedEntities = expandEntity(relatedEntity);
-				String possibleDependencyFlag = relation.possible() ? POSSIBLE_DEP : "";
-				relatedEntities.forEach(theEntity -> {
-					if (theEntity.getId() >= 0) {
-						int entityTo = upToOutputLevelEntityId(entityRepo, theEntity);
-						if (entityTo != -1) {
-							DependencyDetail detail = buildDescription(entity, theEntity, relation.getFromLine());
-							detail = rewriteDetail(detail);
-							String type;
-							if (typeFilter != null && (!typeFilter.contains(relation.getType()))) {
-								return;
-							}
-							if (showLanguage) {
-								type = EntityUtils.getLanguage(entity) + " "
-										+ relation.getType() + " "
-										+ EntityUtils.getLanguage(theEntity)
-										+ possibleDependencyFlag;
-							} else {
-								type = relation.getType() + possibleDependencyFlag;
-							}
-							dependencyMatrix.addDependency(
-									type,
-									entityFrom,
-									entityTo,
-									1, detail);
+		}
+
+		private void addRelation(Entity entity, int entityFrom, Entity relatedEntity, int relationType,
+								 int fromLine, boolean possible) {
+			if (relatedEntity == null) return;
+			if (typeFilterCodes != null && !typeFilterCodes.get(DependencyTypeRegistry.relationCodeOf(relationType)))
+				return;
+			List<Entity> relatedEntities = expandEntity(relatedEntity);
+			int typeCode = possible ? DependencyTypeRegistry.withPossible(relationType) : relationType;
+			relatedEntities.forEach(theEntity -> {
+				if (theEntity.getId() >= 0) {
+					int entityTo = upToOutputLevelEntityId(entityRepo, theEntity);
+					if (entityTo != -1) {
+						int type = typeCode;
+						if (showLanguage) {
+							type = DependencyTypeRegistry.withLanguages(typeCode,
+									EntityUtils.getLanguage(entity), EntityUtils.getLanguage(theEntity));
+						}
+						int line = fromLine == RelationStore.NO_LINE ? 0 : fromLine;
+						// If the toEntity is above the file level (e.g. a package), there is no detail.
+						if (!generateDetail || theEntity.getAncestorOfType(FileEntity.class) == null) {
+							dependencyMatrix.addDependency(type, entityFrom, entityTo, 1, (DependencyDetail) null);
+						} else if (isInRepo(entity) && isInRepo(theEntity)) {
+							dependencyMatrix.addDependency(type, entityFrom, entityTo, 1,
+									this, entity.getId(), theEntity.getId(), line);
+						} else {
+							dependencyMatrix.addDependency(type, entityFrom, entityTo, 1,
+									buildDescription(entity, theEntity, line));
 						}
 					}
-				});
+				}
+			});
+		}
+
+		private boolean isInRepo(Entity entity) {
+			return entityRepo.getEntity(entity.getId()) == entity;
+		}
+
+		@Override
+		public DependencyDetail materialize(int fromEntity, int toEntity, int line) {
+			return buildDescription(entityRepo.getEntity(fromEntity), entityRepo.getEntity(toEntity), line);
+		}
+
+		/**
+		 * Add the nodes of all entities, and return the matrix (without re-mapping file id)
+		 */
+		private DependencyMatrix build() {
+			Iterator<Entity> iterator = entityRepo.entityIterator();
+			while (iterator.hasNext()) {
+				Entity entity = iterator.next();
+				if (entity.inScope())
+					addNodeOf(entity);
 			}
+			return dependencyMatrix;
 		}
-		System.out.println("Finish create dependencies matrix....");
-		return dependencyMatrix;
+	}
+
+	/**
+	 * @return codes of the relation types in the filter, or null if there is no filter
+	 */
+	private BitSet toTypeCodes(List<String> typeFilter) {
+		if (typeFilter == null) return null;
+		BitSet codes = new BitSet();
+		for (String type : typeFilter) {
+			codes.set(DependencyTypeRegistry.code(type));
+		}
+		return codes;
 	}
 
 	private List<Entity> expandEntity(Entity relatedEntity) {
@@ -131,23 +222,6 @@ public abstract class DependencyGenerator {
 		return entities;
 	}
 
-	private DependencyDetail rewriteDetail(DependencyDetail detail) {
-		if (detail == null) return null;
-		String srcFile = filenameWritter.reWrite(
-				stripper.stripFilename(detail.getSrc().getFile())
-		);
-		String dstFile = filenameWritter.reWrite(
-				stripper.stripFilename(detail.getDest().getFile()));
-		return new DependencyDetail(
-				new LocationInfo(detail.getSrc().getObject(),
-						detail.getSrc().getType(),
-						srcFile, detail.getSrc().getLineNumber())
-				,
-				new LocationInfo(detail.getDest().getObject(),
-						detail.getDest().getType(),
-						dstFile, detail.getDest().getLineNumber()));
-	}
-
 	protected abstract int upToOutputLevelEntityId(EntityRepo entityRepo, Entity entity);
 
 	protected abstract String nameOf(Entity entity);
@@ -157,15 +231,17 @@ public abstract class DependencyGenerator {
 	protected ILeadingNameStrippper stripper = new EmptyLeadingNameStripper();
 	protected FilenameWritter filenameWritter = new EmptyFilenameWritter();
 	private boolean generateDetail = false;
+	private long detailHeapBudget = 0;
 
 	public void setLeadingStripper(ILeadingNameStrippper stripper) {
 		this.stripper = stripper;
+		fileNames.clear();
 	}
+	/**
+	 * Build the detail with stripped and rewritten file names
+	 */
 	protected DependencyDetail buildDescription(Entity fromEntity, Entity toEntity, Integer fromLineNumber) {
 		if (!generateDetail) return null;
-		String fromObject = EntityNameBuilder.build(fromEntity);
-		String toObject = EntityNameBuilder.build(toEntity);
-
 		Entity fromFile = fromEntity.getAncestorOfType(FileEntity.class);
 		Entity toFile = toEntity.getAncestorOfType(FileEntity.class);
 
@@ -173,8 +249,16 @@ public abstract class DependencyGenerator {
 		if (toFile == null) return null;
 
 		return new DependencyDetail(
-				new LocationInfo(stripper.stripFilename(fromObject), typeOf(fromEntity), stripper.stripFilename(fromFile.getQualifiedName()), fromLineNumber),
-				new LocationInfo(stripper.stripFilename(toObject), typeOf(toEntity), stripper.stripFilename(toFile.getQualifiedName()), toEntity.getLine()));
+				new LocationInfo(stripper.stripFilename(EntityNameBuilder.build(fromEntity)), typeOf(fromEntity), fileNameOf(fromFile), fromLineNumber),
+				new LocationInfo(stripper.stripFilename(EntityNameBuilder.build(toEntity)), typeOf(toEntity), fileNameOf(toFile), toEntity.getLine()));
+	}
+
+	/* stripped and rewritten names of files, which are shared by all details in the file */
+	private final HashMap<Entity, String> fileNames = new HashMap<>();
+
+	private String fileNameOf(Entity file) {
+		return fileNames.computeIfAbsent(file, f -> filenameWritter.reWrite(
+				stripper.stripFilename(stripper.stripFilename(f.getQualifiedName()))));
 	}
 
 	private String typeOf(Entity entity) {
@@ -183,11 +267,19 @@ public abstract class DependencyGenerator {
 
 	public void setFilenameRewritter(FilenameWritter filenameWritter) {
 		this.filenameWritter = filenameWritter;
+		fileNames.clear();
 	}
 	public void setGenerateDetail(boolean generateDetail) {
 		this.generateDetail = generateDetail;
 	}
 
+	/**
+	 * @param detailHeapBudget the bytes of details kept in heap before they are spilled to disk, 0 means never spill
+	 */
+	public void setDetailHeapBudget(long detailHeapBudget) {
+		this.detailHeapBudget = detailHeapBudget;
+	}
+
 	public void setOutputSelfDependencies(boolean outputSelfDependencies) {
 		this.outputSelfDependencies = outputSelfDependencies;
 	}
@@ -0,0 +1,95 @@
+package depends.matrix.core;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Details of a dependency kept as columns of (from entity id, to entity id, line).<br>
+ * 以(源实体id, 目标实体id, 行号)列的形式保存的依赖细节
+ * <p>
+ * The {@link DependencyDetail} objects (with all the names and file paths) are only created
+ * by the {@link Materializer} when a detail is read, i.e. when a dumper writes it.
+ * Details added as objects are kept as they are.
+ */
+public class DependencyDetails extends AbstractList<DependencyDetail> {
+	public interface Materializer {
+		DependencyDetail materialize(int fromEntity, int toEntity, int line);
+	}
+
+	private static final int[] EMPTY = new int[0];
+	/* in the from column, marks the detail is an object, and its index is kept in the to column */
+	private static final int EXPLICIT = -1;
+
+	private Materializer materializer;
+	private int size = 0;
+	private int[] from = EMPTY;
+	private int[] to = EMPTY;
+	private int[] line = EMPTY;
+	private ArrayList<DependencyDetail> explicitDetails;
+
+	/**
+	 * Add a detail which will be materialized when it is read
+	 */
+	public void add(Materializer materializer, int fromEntity, int toEntity, int line) {
+		if (this.materializer == null) {
+			this.materializer = materializer;
+		} else if (this.materializer != materializer) {
+			add(materializer.materialize(fromEntity, toEntity, line));
+			return;
+		}
+		append(fromEntity, toEntity, line);
+	}
+
+	@Override
+	public boolean add(DependencyDetail detail) {
+		if (explicitDetails == null)
+			explicitDetails = new ArrayList<>();
+		explicitDetails.add(detail);
+		append(EXPLICIT, explicitDetails.size() - 1, 0);
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends DependencyDetail> details) {
+		if (!(details instanceof DependencyDetails other)) {
+			return super.addAll(details);
+		}
+		for (int i = 0; i < other.size; i++) {
+			if (other.from[i] == EXPLICIT) {
+				add(other.explicitDetails.get(other.to[i]));
+			} else {
+				add(other.materializer, other.from[i], other.to[i], other.line[i]);
+			}
+		}
+		return other.size > 0;
+	}
+
+	@Override
+	public DependencyDetail get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException(index);
+		if (from[index] == EXPLICIT)
+			return explicitDetails.get(to[index]);
+		return materializer.materialize(from[index], to[index], line[index]);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private void append(int fromEntity, int toEntity, int fromLine) {
+		if (size == from.length) {
+			int capacity = Math.max(4, size * 2);
+			from = Arrays.copyOf(from, capacity);
+			to = Arrays.copyOf(to, capacity);
+			line = Arrays.copyOf(line, capacity);
+		}
+		from[size] = fromEntity;
+		to[size] = toEntity;
+		line[size] = fromLine;
+		size++;
+	}
+}
@@ -24,20 +24,24 @@ SOFTWARE.
 
 package depends.matrix.core;
 
+import depends.deptypes.DependencyTypeRegistry;
 import multilang.depends.util.file.path.FilenameWritter;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
+import java.util.function.IntUnaryOperator;
 
 import static depends.deptypes.DependencyType.POSSIBLE_DEP;
 
 public class DependencyMatrix {
 	private final boolean outputSelfDependencies;
 	private HashMap<String, DependencyPair> dependencyPairs = new HashMap<>();
-	private ArrayList<String> nodes = new ArrayList<>();
-	private HashMap<Integer, String> nodeIdToName = new HashMap<>();
+	private NodeTable nodeTable = NodeTable.empty();
+	/* not null when nodes are being added, and the node table is not built yet */
+	private NodeTable.Builder nodeBuilder;
+	/* if not null, details are kept in the store instead of in dependency values */
+	private SpilledDetailStore detailStore;
+	/* maps the node ids in the detail store to the node ids of this matrix */
+	private IntUnaryOperator detailNodeMap = IntUnaryOperator.identity();
 
 	public DependencyMatrix(int size, boolean outputSelfDependencies) {
 		dependencyPairs = new HashMap<>(size);
@@ -49,55 +53,166 @@ public class DependencyMatrix {
 	}
 
 	public void addNode(String name, int id) {
-		this.nodes.add(name);
-		this.nodeIdToName.put(id, name);
+		if (nodeBuilder == null) {
+			nodeBuilder = nodeTable.size() == 0 ? NodeTable.builder() : nodeTable.toBuilder();
+		}
+		nodeBuilder.add(name, id);
 	}
 
-	public void addDependency(String depType, Integer from, Integer to, int weight, List<DependencyDetail> details) {
-		if (!outputSelfDependencies && from.equals(to)) {
-			return;
+	/**
+	 * @return the immutable table of the nodes, which could be shared by other matrices
+	 */
+	public NodeTable getNodeTable() {
+		if (nodeBuilder != null) {
+			nodeTable = nodeBuilder.build();
+			nodeBuilder = null;
 		}
-		if (from == -1 || to == -1) {
-			return;
+		return nodeTable;
+	}
+
+	public void setNodeTable(NodeTable nodeTable) {
+		this.nodeTable = nodeTable;
+		this.nodeBuilder = null;
+	}
+
+	public void addDependency(String depType, Integer from, Integer to, int weight, List<DependencyDetail> details) {
+		addDependency(DependencyTypeRegistry.code(depType), from, to, weight, details);
+	}
+
+	public void addDependency(String depType, Integer from, Integer to, int weight, DependencyDetail detail) {
+		addDependency(DependencyTypeRegistry.code(depType), from, to, weight, detail);
+	}
+
+	/**
+	 * @param depType the code of dependency type, see {@link DependencyTypeRegistry}
+	 */
+	public void addDependency(int depType, Integer from, Integer to, int weight, List<DependencyDetail> details) {
+		DependencyPair dependencyPair = pairOf(from, to);
+		if (dependencyPair != null)
+			dependencyPair.addDependency(depType, weight, details);
+	}
+
+	public void addDependency(int depType, Integer from, Integer to, int weight, DependencyDetail detail) {
+		DependencyPair dependencyPair = pairOf(from, to);
+		if (dependencyPair != null)
+			dependencyPair.addDependency(depType, weight, detail);
+	}
+
+	/**
+	 * Add a dependency whose detail is built by the materializer only when it is written
+	 */
+	public void addDependency(int depType, Integer from, Integer to, int weight,
+							  DependencyDetails.Materializer materializer, int fromEntity, int toEntity, int line) {
+		DependencyPair dependencyPair = pairOf(from, to);
+		if (dependencyPair == null) return;
+		if (detailStore != null) {
+			dependencyPair.addDependency(depType, weight, (DependencyDetail) null);
+			detailStore.add(from, to, depType, fromEntity, toEntity, line);
+		} else {
+			dependencyPair.addDependency(depType, weight, materializer, fromEntity, toEntity, line);
 		}
-		if (dependencyPairs.get(DependencyPair.key(from, to)) == null) {
-			dependencyPairs.put(DependencyPair.key(from, to), new DependencyPair(from, to));
+	}
+
+	/**
+	 * Move all dependency pairs into the target matrix, with their nodes mapped by the given map.
+	 * The pairs, values and details are moved instead of copied, so this matrix has no pairs afterwards.
+	 *
+	 * @param nodeMap maps a node id of this matrix to the node id of target, or -1 if not exist
+	 */
+	public void movePairsTo(DependencyMatrix target, IntUnaryOperator nodeMap) {
+		for (DependencyPair pair : dependencyPairs.values()) {
+			int from = nodeMap.applyAsInt(pair.getFrom());
+			int to = nodeMap.applyAsInt(pair.getTo());
+			if (from < 0 || to < 0) continue;
+			if (!target.outputSelfDependencies && from == to) continue;
+			String key = DependencyPair.key(from, to);
+			DependencyPair existed = target.dependencyPairs.get(key);
+			if (existed == null) {
+				pair.reMap(from, to);
+				target.dependencyPairs.put(key, pair);
+			} else {
+				existed.merge(pair);
+			}
 		}
-		DependencyPair dependencyPair = dependencyPairs.get(DependencyPair.key(from, to));
-		dependencyPair.addDependency(depType, weight, details);
+		dependencyPairs = new HashMap<>();
+		target.inheritSpilledDetails(this, nodeMap);
 	}
 
-	public void addDependency(String depType, Integer from, Integer to, int weight, DependencyDetail detail) {
+	/**
+	 * Keep the details added by materializers in the store from now on.
+	 * The store materializes the details by its own materializer.
+	 */
+	public void spillDetails(SpilledDetailStore detailStore) {
+		this.detailStore = detailStore;
+		this.detailNodeMap = IntUnaryOperator.identity();
+	}
+
+	/**
+	 * Share the spilled details of the origin matrix, whose nodes are mapped to nodes of this matrix.
+	 *
+	 * @param originToThis maps a node id of the origin to the node id of this matrix, or -1 if not exist
+	 */
+	public void inheritSpilledDetails(DependencyMatrix origin, IntUnaryOperator originToThis) {
+		if (origin.detailStore == null) return;
+		this.detailStore = origin.detailStore;
+		this.detailNodeMap = origin.detailNodeMap.andThen(originToThis);
+	}
+
+	public boolean hasSpilledDetails() {
+		return detailStore != null;
+	}
+
+	/**
+	 * Open a cursor over the spilled details, which should be read in the order of
+	 * {@link #getDependencyPairsInOrder()}
+	 */
+	public SpilledDetailStore.Cursor openDetailCursor() {
+		return detailStore.cursor(detailNodeMap);
+	}
+
+	/**
+	 * Delete the spilled details once all outputs are written.
+	 * The store is shared with the matrices derived from the same origin.
+	 */
+	public void closeSpilledDetails() {
+		if (detailStore == null) return;
+		detailStore.close();
+	}
+
+	/**
+	 * @return the dependency pairs sorted by (from, to)
+	 */
+	public List<DependencyPair> getDependencyPairsInOrder() {
+		ArrayList<DependencyPair> pairs = new ArrayList<>(dependencyPairs.values());
+		pairs.sort(Comparator.comparing(DependencyPair::getFrom).thenComparing(DependencyPair::getTo));
+		return pairs;
+	}
+
+	/**
+	 * @return the pair of the nodes, or null if the dependency should not be kept
+	 */
+	private DependencyPair pairOf(Integer from, Integer to) {
 		if (!outputSelfDependencies && from.equals(to)) {
-			return;
+			return null;
 		}
 		if (from == -1 || to == -1) {
-			return;
+			return null;
 		}
-		if (dependencyPairs.get(DependencyPair.key(from, to)) == null) {
-			dependencyPairs.put(DependencyPair.key(from, to), new DependencyPair(from, to));
-		}
-		DependencyPair dependencyPair = dependencyPairs.get(DependencyPair.key(from, to));
-		dependencyPair.addDependency(depType, weight, detail);
+		return dependencyPairs.computeIfAbsent(DependencyPair.key(from, to), k -> new DependencyPair(from, to));
 	}
 
-	public ArrayList<String> getNodes() {
-		return nodes;
+	public List<String> getNodes() {
+		return getNodeTable().names();
 	}
 
 
 	public DependencyMatrix reWriteFilenamePattern(FilenameWritter filenameRewritter) {
-		this.nodeIdToName = new HashMap<>();
-		for (int i = 0; i < nodes.size(); i++) {
-			String name = filenameRewritter.reWrite(nodes.get(i));
-			nodes.set(i, name);
-			nodeIdToName.put(i, name);
-		}
+		setNodeTable(getNodeTable().rewrite(filenameRewritter::reWrite));
 		return this;
 	}
 
 	public String getNodeName(Integer key) {
-		return nodeIdToName.get(key);
+		return getNodeTable().nameOf(key);
 	}
 
 	public boolean isOutputSelfDependencies() {
@@ -24,35 +24,84 @@ SOFTWARE.
 
 package depends.matrix.core;
 
+import depends.deptypes.DependencyTypeRegistry;
+
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 
 public class DependencyPair {
 	private Integer from;
 	private Integer to;
-	HashMap<String, DependencyValue> dependencies;
+	/* a pair usually has only a few types, so the values are kept in a small array and found by type code */
+	private DependencyValue[] dependencies = new DependencyValue[1];
+	private int size = 0;
 	public DependencyPair(Integer from, Integer to) {
 		this.from = from;
 		this.to= to;
-		dependencies = new HashMap<>();
 	}
 	public static String key(Integer from, Integer to) {
 		return ""+from+"-->"+to;
 	}
 	
 	public void addDependency(String depType, int weight, DependencyDetail detail) {
-		if (dependencies.get(depType)==null)
-			dependencies.put(depType, new DependencyValue(depType));
-		DependencyValue value = dependencies.get(depType);
-		value.addDependency(weight,detail);
+		addDependency(DependencyTypeRegistry.code(depType), weight, detail);
 	}
 	
 	public void addDependency(String depType, int weight, List<DependencyDetail> details) {
-		if (dependencies.get(depType)==null)
-			dependencies.put(depType, new DependencyValue(depType));
-		DependencyValue value = dependencies.get(depType);		
-		value.addDependency(weight,details);
+		addDependency(DependencyTypeRegistry.code(depType), weight, details);
+	}
+
+	public void addDependency(int depType, int weight, DependencyDetail detail) {
+		valueOf(depType).addDependency(weight,detail);
+	}
+
+	public void addDependency(int depType, int weight, List<DependencyDetail> details) {
+		valueOf(depType).addDependency(weight,details);
+	}
+
+	public void addDependency(int depType, int weight, DependencyDetails.Materializer materializer,
+							  int fromEntity, int toEntity, int line) {
+		valueOf(depType).addDependency(weight, materializer, fromEntity, toEntity, line);
+	}
+
+	/**
+	 * Move the dependencies of the other pair into this one. Values of new types are moved as they are.
+	 */
+	public void merge(DependencyPair other) {
+		for (int i = 0; i < other.size; i++) {
+			DependencyValue value = other.dependencies[i];
+			DependencyValue existed = find(value.getTypeCode());
+			if (existed == null) {
+				append(value);
+			} else {
+				existed.addDependency(value.getWeight(), value.getDetails());
+			}
+		}
+		other.size = 0;
+	}
+
+	private DependencyValue find(int depType) {
+		for (int i = 0; i < size; i++) {
+			if (dependencies[i].getTypeCode() == depType)
+				return dependencies[i];
+		}
+		return null;
+	}
+
+	private void append(DependencyValue value) {
+		if (size == dependencies.length)
+			dependencies = Arrays.copyOf(dependencies, size * 2);
+		dependencies[size++] = value;
+	}
+
+	private DependencyValue valueOf(int depType) {
+		DependencyValue value = find(depType);
+		if (value == null) {
+			value = new DependencyValue(depType);
+			append(value);
+		}
+		return value;
 	}
 	
 	public Integer getFrom() {
@@ -62,7 +111,7 @@ public class DependencyPair {
 		return to;
 	}
 	public Collection<DependencyValue> getDependencies() {
-		return dependencies.values();
+		return Arrays.asList(dependencies).subList(0, size);
 	}
 	public void reMap(Integer from, Integer to) {
 		this.from = from;
@@ -24,17 +24,23 @@ SOFTWARE.
 
 package depends.matrix.core;
 
-import java.util.ArrayList;
+import depends.deptypes.DependencyTypeRegistry;
+
 import java.util.List;
 
 public class DependencyValue{
 	private int weight;
-	private String type;
-	private List<DependencyDetail> dependencyDetail;
+	/* code of the type, see DependencyTypeRegistry */
+	private int type;
+	private DependencyDetails dependencyDetail;
 	public DependencyValue(String type) {
-		this.type = type;
+		this(DependencyTypeRegistry.code(type));
+	}
+
+	public DependencyValue(int typeCode) {
+		this.type = typeCode;
 		this.weight=0;
-		dependencyDetail = new ArrayList<>();
+		dependencyDetail = new DependencyDetails();
 	}
 
 	public void addDependency(int weight, DependencyDetail detail) {
@@ -43,11 +49,24 @@ public class DependencyValue{
             dependencyDetail.add(detail);
 	}
 	
+	/**
+	 * Add a dependency whose detail is materialized only when it is read
+	 */
+	public void addDependency(int weight, DependencyDetails.Materializer materializer,
+							  int fromEntity, int toEntity, int line) {
+		this.weight += weight;
+		dependencyDetail.add(materializer, fromEntity, toEntity, line);
+	}
+
 	public int getWeight() {
 		return weight;
 	}
 
 	public String getType() {
+		return DependencyTypeRegistry.nameOf(type);
+	}
+
+	public int getTypeCode() {
 		return type;
 	}
 
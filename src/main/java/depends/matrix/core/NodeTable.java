@@ -0,0 +1,240 @@
+package depends.matrix.core;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable table of the nodes (rows) of a matrix, each with an int id and an interned name.<br>
+ * 矩阵节点(行)的不可变表，每个节点包含整数id与驻留的名称
+ * <p>
+ * Names are interned in a {@link NamePool} shared by all tables derived from the same table,
+ * so a name is kept only once however many matrices (ordered, reduced, rewritten) refer to it.
+ * Orderings and rewrites are stored as index arrays into the pool.
+ */
+public final class NodeTable {
+	/**
+	 * Append-only pool of distinct names, indexed by int
+	 */
+	public static final class NamePool {
+		private final HashMap<String, Integer> indexes = new HashMap<>();
+		private final ArrayList<String> names = new ArrayList<>();
+
+		public synchronized int intern(String name) {
+			return indexes.computeIfAbsent(name, n -> {
+				names.add(n);
+				return names.size() - 1;
+			});
+		}
+
+		public synchronized String nameOf(int index) {
+			return names.get(index);
+		}
+
+		public synchronized int size() {
+			return names.size();
+		}
+	}
+
+	public static final class Builder {
+		private final NamePool pool;
+		private int size = 0;
+		private int[] nameIndexes = new int[16];
+		private int[] ids = new int[16];
+
+		private Builder(NamePool pool) {
+			this.pool = pool;
+		}
+
+		public Builder add(String name, int id) {
+			return addIndex(pool.intern(name), id);
+		}
+
+		private Builder addIndex(int nameIndex, int id) {
+			if (size == ids.length) {
+				nameIndexes = Arrays.copyOf(nameIndexes, size * 2);
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			nameIndexes[size] = nameIndex;
+			ids[size] = id;
+			size++;
+			return this;
+		}
+
+		public NodeTable build() {
+			return new NodeTable(pool, Arrays.copyOf(nameIndexes, size), Arrays.copyOf(ids, size));
+		}
+	}
+
+	private static final NodeTable EMPTY = new NodeTable(new NamePool(), new int[0], new int[0]);
+
+	private final NamePool pool;
+	private final int[] nameIndexes;
+	private final int[] ids;
+	private final String[] names;
+	/* row of each id, -1 if not exist; built when first used */
+	private volatile int[] rowOfId;
+
+	private NodeTable(NamePool pool, int[] nameIndexes, int[] ids) {
+		this.pool = pool;
+		this.nameIndexes = nameIndexes;
+		this.ids = ids;
+		this.names = new String[nameIndexes.length];
+		for (int row = 0; row < names.length; row++) {
+			names[row] = pool.nameOf(nameIndexes[row]);
+		}
+	}
+
+	public static NodeTable empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * @return a builder with a new name pool
+	 */
+	public static Builder builder() {
+		return new Builder(new NamePool());
+	}
+
+	/**
+	 * @return a builder of a table sharing the name pool of this table
+	 */
+	public Builder derive() {
+		return new Builder(pool);
+	}
+
+	/**
+	 * @return a builder sharing the name pool, with the rows of this table added
+	 */
+	public Builder toBuilder() {
+		Builder builder = derive();
+		for (int row = 0; row < ids.length; row++) {
+			builder.addIndex(nameIndexes[row], ids[row]);
+		}
+		return builder;
+	}
+
+	public NamePool getPool() {
+		return pool;
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	public int idAt(int row) {
+		return ids[row];
+	}
+
+	public String nameAt(int row) {
+		return names[row];
+	}
+
+	/**
+	 * @return the index of the row's name in the pool
+	 */
+	public int nameIndexAt(int row) {
+		return nameIndexes[row];
+	}
+
+	/**
+	 * @return the row of the id, or -1 if not exist. If the id is used by several rows, the last one.
+	 */
+	public int rowOf(int id) {
+		int[] rows = rowOfId;
+		if (rows == null) {
+			int maxId = -1;
+			for (int value : ids) maxId = Math.max(maxId, value);
+			rows = new int[maxId + 1];
+			Arrays.fill(rows, -1);
+			for (int row = 0; row < ids.length; row++) {
+				if (ids[row] >= 0) rows[ids[row]] = row;
+			}
+			rowOfId = rows;
+		}
+		return (id >= 0 && id < rows.length) ? rows[id] : -1;
+	}
+
+	/**
+	 * @return the name of the id, or null if not exist
+	 */
+	public String nameOf(int id) {
+		int row = rowOf(id);
+		return row < 0 ? null : names[row];
+	}
+
+	/**
+	 * @return the largest id in the table, or -1 if the table is empty
+	 */
+	public int maxId() {
+		int maxId = -1;
+		for (int id : ids) maxId = Math.max(maxId, id);
+		return maxId;
+	}
+
+	/**
+	 * @return the names of all rows, as a read-only view
+	 */
+	public List<String> names() {
+		return new AbstractList<>() {
+			@Override
+			public String get(int row) {
+				return names[row];
+			}
+
+			@Override
+			public int size() {
+				return names.length;
+			}
+		};
+	}
+
+	/**
+	 * @return the rows sorted by name
+	 */
+	public int[] sortedRows() {
+		return IntStream.range(0, names.length).boxed()
+				.sorted((a, b) -> names[a].compareTo(names[b]))
+				.mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * @param rows the rows of this table in the new order
+	 * @return the table of the given rows, whose ids are the new row numbers
+	 */
+	public NodeTable permute(int[] rows) {
+		int[] newNameIndexes = new int[rows.length];
+		int[] newIds = new int[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			newNameIndexes[i] = nameIndexes[rows[i]];
+			newIds[i] = i;
+		}
+		return new NodeTable(pool, newNameIndexes, newIds);
+	}
+
+	/**
+	 * Rewrite the names. Each distinct name is rewritten only once.
+	 *
+	 * @return the table of the rewritten names, whose ids are the row numbers
+	 */
+	public NodeTable rewrite(UnaryOperator<String> rewriter) {
+		/* rewritten name index, indexed by name index, -1 if not rewritten yet */
+		int[] rewritten = new int[pool.size()];
+		Arrays.fill(rewritten, -1);
+		int[] newNameIndexes = new int[ids.length];
+		int[] newIds = new int[ids.length];
+		for (int row = 0; row < ids.length; row++) {
+			int index = nameIndexes[row];
+			if (rewritten[index] < 0) {
+				rewritten[index] = pool.intern(rewriter.apply(names[row]));
+			}
+			newNameIndexes[row] = rewritten[index];
+			newIds[row] = row;
+		}
+		return new NodeTable(pool, newNameIndexes, newIds);
+	}
+}
@@ -0,0 +1,365 @@
+package depends.matrix.core;
+
+import depends.deptypes.DependencyTypeRegistry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Dependency details which are spilled to disk when they exceed a heap budget.<br>
+ * 超出堆内存预算时溢出到磁盘的依赖细节
+ * <p>
+ * Each detail is a record of (from node, to node, type code, from entity, to entity, line, sequence).
+ * Records are buffered in memory, sorted by (from, to, sequence), and written to a run file whenever the buffer is full.
+ * A {@link Cursor} merges the memory-mapped sorted runs, so details are read pair by pair
+ * with only one buffer of records in heap. A run is at most 2GB, the limit of a mapped buffer.
+ * If the node ids are mapped (e.g. by the ordering of the matrix), each run is sorted again by the mapped ids
+ * once per map, and the mapped runs are kept until the store is closed.
+ */
+public class SpilledDetailStore implements Closeable {
+	private static final int FIELDS = 7;
+	private static final int FROM = 0, TO = 1, TYPE = 2, FROM_ENTITY = 3, TO_ENTITY = 4, LINE = 5, SEQ = 6;
+	private static final int MIN_BUFFERED_RECORDS = 1024;
+	private static final IntUnaryOperator IDENTITY = IntUnaryOperator.identity();
+
+	private final DependencyDetails.Materializer materializer;
+	private final int capacity;
+	private int[] buffer;
+	private int buffered = 0;
+	private int sequence = 0;
+	private final ArrayList<Path> runs = new ArrayList<>();
+	/* the runs sorted by the mapped node ids, by the map */
+	private final IdentityHashMap<IntUnaryOperator, ArrayList<Path>> mappedRuns = new IdentityHashMap<>();
+
+	/**
+	 * @param heapBudget   the bytes of records kept in heap before they are spilled to disk
+	 * @param materializer builds the detail objects from entity ids when they are read
+	 */
+	public SpilledDetailStore(long heapBudget, DependencyDetails.Materializer materializer) {
+		this.materializer = materializer;
+		long records = heapBudget / (FIELDS * Integer.BYTES);
+		// a run is mapped as a whole, so it should fit in a mapped buffer
+		this.capacity = (int) Math.min(Integer.MAX_VALUE / (FIELDS * Integer.BYTES), Math.max(MIN_BUFFERED_RECORDS, records));
+		this.buffer = new int[Math.min(capacity, MIN_BUFFERED_RECORDS) * FIELDS];
+	}
+
+	public void add(int from, int to, int type, int fromEntity, int toEntity, int line) {
+		if (buffered == capacity) {
+			spill();
+		}
+		if ((buffered + 1) * FIELDS > buffer.length) {
+			int[] larger = new int[Math.min(capacity, buffered * 2) * FIELDS];
+			System.arraycopy(buffer, 0, larger, 0, buffered * FIELDS);
+			buffer = larger;
+		}
+		int offset = buffered * FIELDS;
+		buffer[offset + FROM] = from;
+		buffer[offset + TO] = to;
+		buffer[offset + TYPE] = type;
+		buffer[offset + FROM_ENTITY] = fromEntity;
+		buffer[offset + TO_ENTITY] = toEntity;
+		buffer[offset + LINE] = line;
+		buffer[offset + SEQ] = sequence++;
+		buffered++;
+	}
+
+	public int size() {
+		return sequence;
+	}
+
+	/**
+	 * Open a cursor over all details sorted by (mapped from, mapped to, insertion order).
+	 * Records whose mapped node is negative are skipped.
+	 *
+	 * @param nodeMap maps the node ids of the records to the node ids of the output matrix
+	 */
+	public Cursor cursor(IntUnaryOperator nodeMap) {
+		spill();
+		try {
+			return new Cursor(nodeMap == IDENTITY ? runs : sortedRuns(nodeMap));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the runs sorted by the mapped node ids, sorting only the runs not sorted by the map yet
+	 */
+	private List<Path> sortedRuns(IntUnaryOperator nodeMap) throws IOException {
+		ArrayList<Path> sorted = mappedRuns.computeIfAbsent(nodeMap, k -> new ArrayList<>());
+		while (sorted.size() < runs.size()) {
+			sorted.add(sortRun(runs.get(sorted.size()), nodeMap));
+		}
+		return sorted;
+	}
+
+	/**
+	 * Sort the buffered records and write them to a new run
+	 */
+	private void spill() {
+		if (buffered == 0) return;
+		try {
+			Path run = Files.createTempFile("depends-detail", ".run");
+			run.toFile().deleteOnExit();
+			writeRecords(run, buffer, sortedOrder(buffer, buffered), buffered);
+			runs.add(run);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffered = 0;
+	}
+
+	/**
+	 * Delete the run files. The store should not be used afterwards.
+	 */
+	@Override
+	public void close() {
+		for (Path run : runs) {
+			deleteQuietly(run);
+		}
+		runs.clear();
+		for (ArrayList<Path> sorted : mappedRuns.values()) {
+			for (Path run : sorted) {
+				deleteQuietly(run);
+			}
+		}
+		mappedRuns.clear();
+		buffered = 0;
+	}
+
+	/**
+	 * Write the records in the given order of record indexes
+	 */
+	private static void writeRecords(Path file, int[] records, int[] order, int count) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			int recordsPerBlock = 64 * 1024 / (FIELDS * Integer.BYTES);
+			ByteBuffer bytes = ByteBuffer.allocateDirect(recordsPerBlock * FIELDS * Integer.BYTES);
+			IntBuffer ints = bytes.asIntBuffer();
+			for (int written = 0; written < count; ) {
+				int length = Math.min(recordsPerBlock, count - written);
+				ints.clear();
+				for (int i = written; i < written + length; i++) {
+					ints.put(records, order[i] * FIELDS, FIELDS);
+				}
+				bytes.clear().limit(length * FIELDS * Integer.BYTES);
+				while (bytes.hasRemaining()) channel.write(bytes);
+				written += length;
+			}
+		}
+	}
+
+	private static IntBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asIntBuffer();
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			new File(file.toString()).deleteOnExit();
+		}
+	}
+
+	public interface DetailVisitor {
+		void visit(String type, DependencyDetail detail);
+	}
+
+	/**
+	 * Iterates the details in the order of (from, to).
+	 * Usage: for each pair in (from, to) order, call {@link #forEachDetail(DependencyPair, DetailVisitor)},
+	 * or call {@link #next(int, int)} until it returns false.
+	 * The pairs should be visited in increasing (from, to) order, since the details of the pairs before
+	 * the visited one are skipped.
+	 */
+	public class Cursor implements Closeable {
+		private final PriorityQueue<Run> heads = new PriorityQueue<>();
+		private Run current;
+		private int lastFrom = Integer.MIN_VALUE;
+		private int lastTo = Integer.MIN_VALUE;
+		/* (type, from entity, to entity, line) of the details of the pair being visited */
+		private int[] pairRecords = new int[4 * 16];
+
+		private Cursor(List<Path> sortedRuns) throws IOException {
+			for (Path sorted : sortedRuns) {
+				Run head = new Run(map(sorted));
+				if (head.advance()) heads.add(head);
+			}
+		}
+
+		/**
+		 * Move to the next detail of the pair. Details of the pairs before it are skipped.
+		 *
+		 * @return false if there is no more detail of the pair
+		 * @throws IllegalStateException if the pair is before the pair visited last
+		 */
+		public boolean next(int from, int to) {
+			if (compareKey(from, to, lastFrom, lastTo) < 0)
+				throw new IllegalStateException("pairs should be visited in (from, to) order: " + from + "->" + to
+						+ " after " + lastFrom + "->" + lastTo);
+			lastFrom = from;
+			lastTo = to;
+			if (current != null) {
+				if (current.advance()) heads.add(current);
+				current = null;
+			}
+			while (!heads.isEmpty()) {
+				Run head = heads.peek();
+				int compare = compareKey(head.record[FROM], head.record[TO], from, to);
+				if (compare > 0) return false;
+				heads.poll();
+				if (compare == 0) {
+					current = head;
+					return true;
+				}
+				if (head.advance()) heads.add(head);
+			}
+			return false;
+		}
+
+		/**
+		 * Visit the details of the pair grouped by type, in the order of the types of the pair,
+		 * and in insertion order within a type, which is the same order as details kept in heap.
+		 */
+		public void forEachDetail(DependencyPair pair, DetailVisitor visitor) {
+			int count = 0;
+			while (next(pair.getFrom(), pair.getTo())) {
+				if ((count + 1) * 4 > pairRecords.length)
+					pairRecords = Arrays.copyOf(pairRecords, pairRecords.length * 2);
+				int offset = count++ * 4;
+				pairRecords[offset] = current.record[TYPE];
+				pairRecords[offset + 1] = current.record[FROM_ENTITY];
+				pairRecords[offset + 2] = current.record[TO_ENTITY];
+				pairRecords[offset + 3] = current.record[LINE];
+			}
+			for (DependencyValue value : pair.getDependencies()) {
+				String type = value.getType();
+				for (int offset = 0; offset < count * 4; offset += 4) {
+					if (pairRecords[offset] == value.getTypeCode())
+						visitor.visit(type, materializer.materialize(pairRecords[offset + 1], pairRecords[offset + 2], pairRecords[offset + 3]));
+				}
+			}
+		}
+
+		public String type() {
+			return DependencyTypeRegistry.nameOf(current.record[TYPE]);
+		}
+
+		public DependencyDetail detail() {
+			return materializer.materialize(current.record[FROM_ENTITY], current.record[TO_ENTITY], current.record[LINE]);
+		}
+
+		/**
+		 * Release the runs; they are deleted when the store is closed
+		 */
+		@Override
+		public void close() {
+			heads.clear();
+			current = null;
+		}
+	}
+
+	/**
+	 * Load the run, map the nodes, and write the records sorted by (from, to, sequence) to a new file.
+	 * A run has at most one buffer of records, so the heap used is about the budget.
+	 */
+	private static Path sortRun(Path run, IntUnaryOperator nodeMap) throws IOException {
+		IntBuffer ints = map(run);
+		int[] records = new int[ints.remaining()];
+		ints.get(records);
+		int count = 0;
+		for (int i = 0; i < records.length; i += FIELDS) {
+			int from = nodeMap.applyAsInt(records[i + FROM]);
+			int to = nodeMap.applyAsInt(records[i + TO]);
+			if (from < 0 || to < 0) continue;
+			int offset = count * FIELDS;
+			System.arraycopy(records, i, records, offset, FIELDS);
+			records[offset + FROM] = from;
+			records[offset + TO] = to;
+			count++;
+		}
+		Path file = Files.createTempFile("depends-detail", ".sorted");
+		file.toFile().deleteOnExit();
+		writeRecords(file, records, sortedOrder(records, count), count);
+		return file;
+	}
+
+	/**
+	 * @return the indexes of the first count records, sorted by (from, to, sequence)
+	 */
+	private static int[] sortedOrder(int[] records, int count) {
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) order[i] = i;
+		mergeSort(records, order, new int[count], 0, count);
+		return order;
+	}
+
+	/**
+	 * Sort of the record indexes by (from, to, sequence)
+	 */
+	private static void mergeSort(int[] records, int[] order, int[] temp, int start, int end) {
+		if (end - start < 2) return;
+		int middle = (start + end) >>> 1;
+		mergeSort(records, order, temp, start, middle);
+		mergeSort(records, order, temp, middle, end);
+		int left = start, right = middle, k = start;
+		while (left < middle && right < end) {
+			int a = order[left] * FIELDS, b = order[right] * FIELDS;
+			int compare = compareKey(records[b + FROM], records[b + TO], records[a + FROM], records[a + TO]);
+			if (compare == 0) compare = Integer.compare(records[b + SEQ], records[a + SEQ]);
+			if (compare < 0) {
+				temp[k++] = order[right++];
+			} else {
+				temp[k++] = order[left++];
+			}
+		}
+		while (left < middle) temp[k++] = order[left++];
+		while (right < end) temp[k++] = order[right++];
+		System.arraycopy(temp, start, order, start, end - start);
+	}
+
+	private static int compareKey(int fromA, int toA, int fromB, int toB) {
+		if (fromA != fromB) return Integer.compare(fromA, fromB);
+		return Integer.compare(toA, toB);
+	}
+
+	/**
+	 * A sorted run being merged, with its current record
+	 */
+	private static class Run implements Comparable<Run> {
+		private final IntBuffer ints;
+		private final int[] record = new int[FIELDS];
+
+		Run(IntBuffer ints) {
+			this.ints = ints;
+		}
+
+		boolean advance() {
+			if (ints.remaining() < FIELDS) return false;
+			ints.get(record);
+			return true;
+		}
+
+		@Override
+		public int compareTo(Run other) {
+			int compare = compareKey(record[FROM], record[TO], other.record[FROM], other.record[TO]);
+			if (compare != 0) return compare;
+			return Integer.compare(record[SEQ], other.record[SEQ]);
+		}
+	}
+}
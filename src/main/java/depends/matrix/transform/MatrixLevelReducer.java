@@ -24,24 +24,45 @@ SOFTWARE.
 
 package depends.matrix.transform;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
 
 import depends.matrix.core.DependencyMatrix;
 import depends.matrix.core.DependencyPair;
 import depends.matrix.core.DependencyValue;
-
+import depends.matrix.core.NodeTable;
+
+/**
+ * Roll up the nodes of a matrix to a level of their paths (e.g. packages of depth N).
+ * <p>
+ * Node names are parsed into a {@link NodePathTree} once, and the node to level mapping
+ * is cached, so the matrices of several levels are built with one pass over the dependencies.
+ */
 public class MatrixLevelReducer {
 
 	private DependencyMatrix origin;
 	private int level;
-	HashMap<String, Integer> nodesMap = new HashMap<>();
+	private NodePathTree pathTree;
+	private HashMap<Integer, LevelMapping> levelMappings = new HashMap<>();
+
+	/**
+	 * The sorted nodes of a level, and the new node ids indexed by origin node id
+	 */
+	private record LevelMapping(NodeTable nodes, int[] ids) {
+	}
 
 	public MatrixLevelReducer(DependencyMatrix matrix, String levelString) {
 		this.origin = matrix;
 		this.level = stringToPositiveInt(levelString);
 	}
 
+	public MatrixLevelReducer(DependencyMatrix matrix) {
+		this(matrix, "-1");
+	}
+
 	public static String calcuateNodeAtLevel(String node, int level) {
 		String splitterRegex = "\\.";
 		String splitter = ".";
@@ -78,35 +99,108 @@ public class MatrixLevelReducer {
 	public DependencyMatrix shrinkToLevel() {
 		if (level < 0)
 			return origin;
+		return shrinkToLevels(level, level).get(level);
+	}
 
-		ArrayList<String> reMappedNodes = new ArrayList<>();
-		for (String node : origin.getNodes()) {
-			String newNode = calcuateNodeAtLevel(node, level);
-			if (!reMappedNodes.contains(newNode)) {
-				reMappedNodes.add(newNode);
+	/**
+	 * Build the matrices of all levels from 1 to maxLevel
+	 *
+	 * @return the matrices keyed by level
+	 */
+	public Map<Integer, DependencyMatrix> shrinkToLevels(int maxLevel) {
+		return shrinkToLevels(1, maxLevel);
+	}
+
+	private Map<Integer, DependencyMatrix> shrinkToLevels(int minLevel, int maxLevel) {
+		Map<Integer, DependencyMatrix> matrices = new LinkedHashMap<>();
+		if (minLevel > maxLevel)
+			return matrices;
+		int count = maxLevel - minLevel + 1;
+		int[][] mappings = new int[count][];
+		for (int l = minLevel; l <= maxLevel; l++) {
+			DependencyMatrix reduced = new DependencyMatrix(0, false);
+			mappings[l - minLevel] = mappingOf(l, reduced);
+			matrices.put(l, reduced);
+		}
+
+		// add dependencies of all levels in one pass
+		for (DependencyPair dependencyPair : origin.getDependencyPairs()) {
+			int from = dependencyPair.getFrom();
+			int to = dependencyPair.getTo();
+			for (DependencyValue dep : dependencyPair.getDependencies()) {
+				for (int i = 0; i < count; i++) {
+					int newFrom = translateToNewId(mappings[i], from);
+					int newTo = translateToNewId(mappings[i], to);
+					if (newFrom < 0 || newTo < 0) continue;
+					matrices.get(minLevel + i).addDependency(dep.getTypeCode(), newFrom, newTo, dep.getWeight(), dep.getDetails());
+				}
 			}
 		}
+		for (int i = 0; i < count; i++) {
+			int[] mapping = mappings[i];
+			matrices.get(minLevel + i).inheritSpilledDetails(origin, id -> translateToNewId(mapping, id));
+		}
+		return matrices;
+	}
+
+	/**
+	 * Add the nodes of the level to the reduced matrix
+	 *
+	 * @return the new node ids, indexed by origin node id
+	 */
+	private int[] mappingOf(int level, DependencyMatrix reduced) {
+		LevelMapping mapping = levelMappings.computeIfAbsent(level, this::buildLevelMapping);
+		reduced.setNodeTable(mapping.nodes);
+		return mapping.ids;
+	}
+
+	private LevelMapping buildLevelMapping(int level) {
+		NodeTable originNodes = origin.getNodeTable();
+		NodePathTree tree = pathTree();
 		// sort nodes by name
-		reMappedNodes.sort((o1, o2) -> o1.compareTo(o2));
-	    DependencyMatrix ordered = new DependencyMatrix(0, false);
-		for (int id=0;id<reMappedNodes.size();id++) {
-			nodesMap.put(reMappedNodes.get(id), id);
-			ordered.addNode(reMappedNodes.get(id), id);
+		TreeSet<String> reMappedNodes = new TreeSet<>();
+		for (int row = 0; row < originNodes.size(); row++) {
+			reMappedNodes.add(tree.nameAtLevel(originNodes.nameAt(row), level));
+		}
+		NodeTable.Builder builder = originNodes.derive();
+		HashMap<String, Integer> nodesMap = new HashMap<>();
+		for (String node : reMappedNodes) {
+			nodesMap.put(node, nodesMap.size());
+			builder.add(node, nodesMap.size() - 1);
 		}
+		// new id of each origin name, so each name is looked up only once
+		int[] newIdOfName = new int[originNodes.getPool().size()];
+		Arrays.fill(newIdOfName, -1);
+		for (int row = 0; row < originNodes.size(); row++) {
+			int nameIndex = originNodes.nameIndexAt(row);
+			if (newIdOfName[nameIndex] < 0)
+				newIdOfName[nameIndex] = nodesMap.get(tree.nameAtLevel(originNodes.nameAt(row), level));
+		}
+		int[] ids = new int[originNodes.maxId() + 1];
+		Arrays.fill(ids, -1);
+		for (int row = 0; row < originNodes.size(); row++) {
+			int originId = originNodes.idAt(row);
+			if (originId < 0) continue;
+			ids[originId] = newIdOfName[originNodes.nameIndexAt(originNodes.rowOf(originId))];
+		}
+		return new LevelMapping(builder.build(), ids);
+	}
 
-		// add dependencies
-		for (DependencyPair dependencyPair : origin.getDependencyPairs()) {
-			for (DependencyValue dep : dependencyPair.getDependencies()) {
-				ordered.addDependency(dep.getType(), translateToNewId(dependencyPair.getFrom()),
-						translateToNewId(dependencyPair.getTo()), dep.getWeight(), dep.getDetails());
+	private NodePathTree pathTree() {
+		if (pathTree == null) {
+			pathTree = new NodePathTree();
+			NodeTable originNodes = origin.getNodeTable();
+			for (int row = 0; row < originNodes.size(); row++) {
+				pathTree.add(originNodes.nameAt(row));
 			}
 		}
-		return ordered;
+		return pathTree;
 	}
 
-	private Integer translateToNewId(Integer id) {
-		String newNode = calcuateNodeAtLevel(origin.getNodeName(id), level);
-		return nodesMap.get(newNode);
+	private static int translateToNewId(int[] mapping, int id) {
+		if (id < 0 || id >= mapping.length)
+			return -1;
+		return mapping[id];
 	}
 
 	private int stringToPositiveInt(String level) {
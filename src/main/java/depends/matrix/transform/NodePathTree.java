@@ -0,0 +1,92 @@
+package depends.matrix.transform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Node names (file paths or package names) parsed into a tree of path segments.<br>
+ * 将节点名(文件路径或包名)解析为路径段组成的树
+ * <p>
+ * Each name is parsed only once. The name of a node at a level is the name of its ancestor
+ * at that depth, which is built once per tree node, so it equals
+ * {@link MatrixLevelReducer#calcuateNodeAtLevel(String, int)} without any split or string building.
+ */
+public class NodePathTree {
+	private static class PathNode {
+		final String name;
+		final int depth;
+		final PathNode parent;
+		final char splitter;
+		HashMap<String, PathNode> children;
+
+		PathNode(String name, int depth, PathNode parent, char splitter) {
+			this.name = name;
+			this.depth = depth;
+			this.parent = parent;
+			this.splitter = splitter;
+		}
+
+		PathNode child(String segment) {
+			if (children == null) children = new HashMap<>();
+			return children.computeIfAbsent(segment, s ->
+					new PathNode(depth == 0 ? name + s : name + splitter + s, depth + 1, this, splitter));
+		}
+
+		PathNode ancestorAt(int level) {
+			PathNode node = this;
+			while (node.depth > level) node = node.parent;
+			return node;
+		}
+	}
+
+	/* roots are keyed by splitter and prefix, e.g. "/" for absolute unix paths */
+	private final HashMap<String, PathNode> roots = new HashMap<>();
+	private final HashMap<String, PathNode> leaves = new HashMap<>();
+
+	/**
+	 * @return the depth of the name, i.e. the number of its non-empty segments
+	 */
+	public int add(String node) {
+		return leafOf(node).depth;
+	}
+
+	/**
+	 * @return the name of the node at the level, or null if the node is not added
+	 */
+	public String nameAtLevel(String node, int level) {
+		PathNode leaf = leaves.get(node);
+		if (leaf == null) return null;
+		return leaf.ancestorAt(level).name;
+	}
+
+	private PathNode leafOf(String node) {
+		PathNode leaf = leaves.get(node);
+		if (leaf != null) return leaf;
+		char splitter = '.';
+		if (node.indexOf('\\') >= 0) {
+			splitter = '\\';
+		} else if (node.indexOf('/') >= 0) {
+			splitter = '/';
+		}
+		String prefix = (!node.isEmpty() && node.charAt(0) == splitter) ? String.valueOf(splitter) : "";
+		final char rootSplitter = splitter;
+		leaf = roots.computeIfAbsent(splitter + prefix, k -> new PathNode(prefix, 0, null, rootSplitter));
+		for (String segment : split(node, splitter)) {
+			leaf = leaf.child(segment);
+		}
+		leaves.put(node, leaf);
+		return leaf;
+	}
+
+	private static ArrayList<String> split(String node, char splitter) {
+		ArrayList<String> segments = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i <= node.length(); i++) {
+			if (i == node.length() || node.charAt(i) == splitter) {
+				if (i > start) segments.add(node.substring(start, i));
+				start = i + 1;
+			}
+		}
+		return segments;
+	}
+}
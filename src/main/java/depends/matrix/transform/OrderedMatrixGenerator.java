@@ -24,41 +24,53 @@ SOFTWARE.
 */
 
 import depends.matrix.core.DependencyMatrix;
-import depends.matrix.core.DependencyPair;
-import depends.matrix.core.DependencyValue;
+import depends.matrix.core.NodeTable;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
+/**
+ * Order the nodes of a matrix by name.
+ * <p>
+ * The ordered node table is a permutation of the origin table, sharing its interned names.
+ * The old to new node ids is computed once as a permutation array, and the dependency pairs
+ * of the origin matrix are moved to the ordered matrix with their ids remapped,
+ * so the dependency values and details are not copied.
+ * The origin matrix has no dependency pairs after {@link #build()}.
+ */
 public class OrderedMatrixGenerator  {
 	private DependencyMatrix matrix;
 	public OrderedMatrixGenerator(DependencyMatrix matrix) {
 		this.matrix = matrix;
 	}
 	public DependencyMatrix build() {
-	    ArrayList<String> reMappedNodes= new ArrayList<>(matrix.getNodes());
+		NodeTable nodes = matrix.getNodeTable();
 	    //sort nodes by name
-		reMappedNodes.sort((o1, o2) -> o1.compareTo(o2));
-	    
+		int[] sortedRows = nodes.sortedRows();
+
 	    DependencyMatrix ordered = new DependencyMatrix((int)(matrix.getDependencyPairs().size()/0.75+1), matrix.isOutputSelfDependencies());
-		HashMap<String, Integer> nodesMap = new HashMap<>();
-		for (int id=0;id<reMappedNodes.size();id++) {
-			nodesMap.put(reMappedNodes.get(id), id);
-			ordered.addNode(reMappedNodes.get(id), id);
-		}
+		ordered.setNodeTable(nodes.permute(sortedRows));
 
-		//add dependencies
-		for (DependencyPair dependencyPair:matrix.getDependencyPairs()) {
-			Integer from = dependencyPair.getFrom();
-			Integer to = dependencyPair.getTo();
-			for (DependencyValue dep:dependencyPair.getDependencies()) {
-				ordered.addDependency(dep.getType(), translateToNewId( nodesMap, from), translateToNewId( nodesMap, to), dep.getWeight(),dep.getDetails());
-			}
-		}
+		int[] permutation = buildPermutation(nodes, sortedRows);
+		matrix.movePairsTo(ordered, id -> (id >= 0 && id < permutation.length) ? permutation[id] : -1);
 		return ordered;
 	}
-	private Integer translateToNewId( HashMap<String, Integer> nodesMap, Integer id) {
-		return nodesMap.get(matrix.getNodeName(id));
-	}
 
+	/**
+	 * @return new node id indexed by old node id, -1 if the node is not exist
+	 */
+	private static int[] buildPermutation(NodeTable nodes, int[] sortedRows) {
+		// nodes of the same name are mapped to the last of them
+		int[] newIdOfName = new int[nodes.getPool().size()];
+		for (int id = 0; id < sortedRows.length; id++) {
+			newIdOfName[nodes.nameIndexAt(sortedRows[id])] = id;
+		}
+		int[] permutation = new int[nodes.maxId() + 1];
+		Arrays.fill(permutation, -1);
+		for (int row = 0; row < nodes.size(); row++) {
+			int id = nodes.idAt(row);
+			if (id < 0) continue;
+			permutation[id] = newIdOfName[nodes.nameIndexAt(nodes.rowOf(id))];
+		}
+		return permutation;
+	}
 }
@@ -42,6 +42,7 @@ public class BindingResolver implements IBindingResolver{
 	private ImportLookupStrategy importLookupStrategy;
 	private Set<UnsolvedBindings> unsolvedSymbols = new HashSet<>();
 	private EntityRepo repo;
+	private ExtensionFunctionIndex extensionFunctionIndex;
 
 	private boolean eagerExpressionResolve = false;
 	private boolean isCollectUnsolvedBindings = false;
@@ -83,6 +84,23 @@ public class BindingResolver implements IBindingResolver{
 			Entity entity= iterator.next();
 			entity.inferEntities(this);
 		}
+		fixTypeHierarchies();
+		extensionFunctionIndex = new ExtensionFunctionIndex(repo);
+	}
+
+	/**
+	 * Type hierarchies do not change after types resolved,
+	 * so member lookups of types could be answered by pre-computed tables.
+	 */
+	private void fixTypeHierarchies() {
+		int index = 0;
+		Iterator<Entity> iterator = repo.entityIterator();
+		while (iterator.hasNext()) {
+			Entity entity = iterator.next();
+			if (entity instanceof TypeEntity type) {
+				type.fixHierarchy(index++);
+			}
+		}
 	}
 	
 
@@ -149,16 +167,17 @@ public class BindingResolver implements IBindingResolver{
 		int indexCount = 0;
 		String name = rawName.getName();
 		if (fromEntity==null) return null;
+		// the longest global name is found once, instead of probing the repo with every prefix
+		int globalPrefixLength = importLookupStrategy.supportGlobalNameLookup() ?
+				repo.longestKnownPrefix(name) : -1;
 		do {
 			entity = lookupEntity(fromEntity, name, searchImport);
 			if (entity!=null ) {
 				break;
 			}
-			if (importLookupStrategy.supportGlobalNameLookup()) {
-				if (repo.getEntity(name) != null) {
-					entity = repo.getEntity(name);
-					break;
-				}
+			if (name.length() == globalPrefixLength) {
+				entity = repo.getEntity(name);
+				break;
 			}
 			
 			indexCount++;
@@ -217,8 +236,16 @@ public class BindingResolver implements IBindingResolver{
 		//If it is not an entity with types (not a type, var, function), fall back to itself
 		if (precendenceEntity.getType()==null) 
 			return precendenceEntity;
-			
-		for (Entity child : precendenceEntity.getType().getChildren()) {
+
+		TypeEntity type = precendenceEntity.getType();
+		if (type.getQualifiedName() != null) {
+			Entity child = repo.getEntity(type.getQualifiedName(), names[nameIndex]);
+			if (child != null && child.getParent() == type &&
+					child.getRawName().getName().equals(names[nameIndex])) {
+				return findEntitySince(child, names, nameIndex + 1);
+			}
+		}
+		for (Entity child : type.getChildren()) {
 			if (child.getRawName().getName().equals(names[nameIndex])) {
 				return findEntitySince(child, names, nameIndex + 1);
 			}
@@ -293,6 +320,11 @@ public class BindingResolver implements IBindingResolver{
 		return false;
 	}
 
+	@Override
+	public ExtensionFunctionIndex getExtensionFunctionIndex() {
+		return extensionFunctionIndex;
+	}
+
 	@Override
 	public boolean allowExtensions() {
 		return false;
@@ -72,5 +72,12 @@ public interface IBindingResolver {
 
     boolean allowExtensions();
 
+    /**
+     * @return the index of extension functions, or null if it is not built yet (types are not resolved)
+     */
+    default ExtensionFunctionIndex getExtensionFunctionIndex() {
+        return null;
+    }
+
     EntityRepo getRepo();
 }
@@ -31,8 +31,8 @@ import depends.entity.Location;
  * Dependency relation object
  */
 public class Relation {
-	/*Where the relation happen in src*/
-	private Location location;
+	/*Where the relation happen in src, or Location.UNKNOWN*/
+	private final int fromLine;
 	private String type;
 	private Entity toEntity;
 	private boolean possibleDependency;
@@ -40,7 +40,14 @@ public class Relation {
 	public Relation(String type, Entity toEntity,Location location, boolean possibleDependency) {
 		this.toEntity = toEntity;
 		this.type = type;
-		this.location = location;
+		this.fromLine = location == null ? Location.UNKNOWN : location.line();
+		this.possibleDependency = possibleDependency;
+	}
+
+	public Relation(String type, Entity toEntity, int fromLine, boolean possibleDependency) {
+		this.toEntity = toEntity;
+		this.type = type;
+		this.fromLine = fromLine;
 		this.possibleDependency = possibleDependency;
 	}
 	public String getType() {
@@ -56,8 +63,15 @@ public class Relation {
 	}
 
 	public Integer getFromLine() {
-		if (location==null) return null;
-		return location.getLine();
+		if (fromLine == Location.UNKNOWN) return null;
+		return fromLine;
+	}
+
+	/**
+	 * @return the line where the relation happens, or {@link Location#UNKNOWN}
+	 */
+	public int fromLine() {
+		return fromLine;
 	}
 
 	public boolean possible() {
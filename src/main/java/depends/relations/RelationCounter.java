@@ -25,6 +25,7 @@ SOFTWARE.
 package depends.relations;
 
 import depends.deptypes.DependencyType;
+import depends.deptypes.DependencyTypeRegistry;
 import depends.entity.*;
 import depends.entity.intf.IDelegateProviderType;
 import depends.entity.repo.EntityRepo;
@@ -42,13 +43,24 @@ public class RelationCounter {
 	private EntityRepo repo;
 	private boolean callAsImpl;
 	private AbstractLangProcessor langProcessor;
+	/* if not null, relations are streamed into it instead of kept on entities */
+	private RelationSink sink;
 
 	public RelationCounter(EntityRepo repo, AbstractLangProcessor langProcessor, IBindingResolver bindingResolver) {
+		this(repo, langProcessor, bindingResolver, null);
+	}
+
+	/**
+	 * @param sink if not null, each relation is passed to the sink and not kept on entities
+	 */
+	public RelationCounter(EntityRepo repo, AbstractLangProcessor langProcessor, IBindingResolver bindingResolver,
+						   RelationSink sink) {
 		this.entities = repo.getFileEntities();
 		this.bindingResolver = bindingResolver;
 		this.repo = repo;
 		this.callAsImpl = langProcessor.supportCallAsImpl();
 		this.langProcessor = langProcessor;
+		this.sink = sink;
 	}
 
 	public void computeRelations() {
@@ -90,19 +102,19 @@ public class RelationCounter {
 
 		for (VarEntity var : entity.getVars()) {
 			if (var.getType() != null)
-				entity.addRelation(buildRelation(entity, DependencyType.CONTAIN, var.getType(), var.getLocation()));
+				addRelation(entity, buildRelation(entity, DependencyType.CONTAIN, var.getType(), var.getLocation()));
 			for (Entity type : var.getResolvedTypeParameters()) {
-				var.addRelation(buildRelation(var, DependencyType.PARAMETER, type));
+				addRelation(var, buildRelation(var, DependencyType.PARAMETER, type));
 			}
 		}
 		for (Entity type : entity.getResolvedAnnotations()) {
-			entity.addRelation(buildRelation(entity, DependencyType.ANNOTATION, type));
+			addRelation(entity, buildRelation(entity, DependencyType.ANNOTATION, type));
 		}
 		for (Entity type : entity.getResolvedTypeParameters()) {
-			entity.addRelation(buildRelation(entity, DependencyType.USE, type));
+			addRelation(entity, buildRelation(entity, DependencyType.USE, type));
 		}
 		for (ContainerEntity mixin : entity.getResolvedMixins()) {
-			entity.addRelation(buildRelation(entity, DependencyType.MIXIN, mixin));
+			addRelation(entity, buildRelation(entity, DependencyType.MIXIN, mixin));
 		}
 	}
 
@@ -127,57 +139,77 @@ public class RelationCounter {
 			/* if it is a FunctionEntityProto, add Relation to all Impl Entities*/
 			if (callAsImpl && referredEntity instanceof FunctionEntityProto) {
 				if (entity.getAncestorOfType(FileEntity.class).getId().equals(referredEntity.getAncestorOfType(FileEntity.class).getId())) {
-					entity.addRelation(buildRelation(entity, DependencyType.CALL, referredEntity, expression.getLocation(), possibleDependency));
+					addRelation(entity, buildRelation(entity, DependencyType.CALL, referredEntity, expression.getLocation(), possibleDependency));
 				} else {
 					Entity multiDeclare = repo.getEntity(referredEntity.getQualifiedName());
 					if (multiDeclare instanceof MultiDeclareEntities m) {
 						List<Entity> entities = m.getEntities().stream().filter(item -> (item instanceof FunctionEntityImpl))
 								.collect(Collectors.toList());
 						for (Entity e : entities) {
-							entity.addRelation(expression, buildRelation(entity, DependencyType.LINK, e, expression.getLocation(), true));
+							addRelation(entity, expression, buildRelation(entity, DependencyType.LINK, e, expression.getLocation(), true));
 							matched = true;
 						}
 					}
 				}
 			}
-			entity.addRelation(buildRelation(entity, DependencyType.CALL, referredEntity, expression.getLocation(), possibleDependency));
+			addRelation(entity, buildRelation(entity, DependencyType.CALL, referredEntity, expression.getLocation(), possibleDependency));
 			matched = true;
 
 		}
 		if (expression.isCreate()) {
-			entity.addRelation(buildRelation(entity, DependencyType.CREATE, referredEntity, expression.getLocation(), possibleDependency));
+			addRelation(entity, buildRelation(entity, DependencyType.CREATE, referredEntity, expression.getLocation(), possibleDependency));
 			matched = true;
 		}
 		if (expression.isThrow()) {
-			entity.addRelation(buildRelation(entity, DependencyType.THROW, referredEntity, expression.getLocation(), possibleDependency));
+			addRelation(entity, buildRelation(entity, DependencyType.THROW, referredEntity, expression.getLocation(), possibleDependency));
 			matched = true;
 		}
 		if (expression.isCast()) {
-			entity.addRelation(buildRelation(entity, DependencyType.CAST, referredEntity, expression.getLocation(), possibleDependency));
+			addRelation(entity, buildRelation(entity, DependencyType.CAST, referredEntity, expression.getLocation(), possibleDependency));
 			matched = true;
 		}
 		if (!matched) {
 			if (callAsImpl && repo.getEntity(referredEntity.getQualifiedName()) instanceof MultiDeclareEntities &&
 					(referredEntity instanceof VarEntity || referredEntity instanceof FunctionEntity)) {
 				if (entity.getAncestorOfType(FileEntity.class).getId().equals(referredEntity.getAncestorOfType(FileEntity.class).getId())) {
-					entity.addRelation(buildRelation(entity, DependencyType.USE, referredEntity, expression.getLocation(), possibleDependency));
+					addRelation(entity, buildRelation(entity, DependencyType.USE, referredEntity, expression.getLocation(), possibleDependency));
 				} else {
 					MultiDeclareEntities m = (MultiDeclareEntities) (repo.getEntity(referredEntity.getQualifiedName()));
 					for (Entity e : m.getEntities()) {
 						if (e == referredEntity) {
-							entity.addRelation(expression, buildRelation(entity, DependencyType.USE, e, expression.getLocation(), true));
+							addRelation(entity, expression, buildRelation(entity, DependencyType.USE, e, expression.getLocation(), true));
 						} else {
-							entity.addRelation(expression, buildRelation(entity, DependencyType.LINK, e, expression.getLocation(), true));
+							addRelation(entity, expression, buildRelation(entity, DependencyType.LINK, e, expression.getLocation(), true));
 						}
 						matched = true;
 					}
 				}
 			} else {
-				entity.addRelation(expression, buildRelation(entity, DependencyType.USE, referredEntity, expression.getLocation(), possibleDependency));
+				addRelation(entity, expression, buildRelation(entity, DependencyType.USE, referredEntity, expression.getLocation(), possibleDependency));
 			}
 		}
 	}
 
+	private void addRelation(Entity from, Relation relation) {
+		if (sink == null) {
+			from.addRelation(relation);
+			return;
+		}
+		if (relation.getEntity() == null) return;
+		sink.onRelation(from, relation.getEntity(), DependencyTypeRegistry.code(relation.getType()),
+				relation.fromLine(), relation.possible());
+	}
+
+	private void addRelation(ContainerEntity from, Expression expression, Relation relation) {
+		if (sink == null) {
+			from.addRelation(expression, relation);
+			return;
+		}
+		if (from.recordExpressionRelation(expression, relation)) {
+			addRelation(from, relation);
+		}
+	}
+
 	private Relation buildRelation(Entity from, String type, Entity referredEntity, boolean possibleDependency) {
 		return buildRelation(from, type, referredEntity, from.getLocation(), possibleDependency);
 	}
@@ -208,43 +240,43 @@ public class RelationCounter {
 
 	private void computeTypeRelations(TypeEntity type) {
 		for (TypeEntity superType : type.getInheritedTypes()) {
-			type.addRelation(buildRelation(type, DependencyType.INHERIT, superType));
+			addRelation(type, buildRelation(type, DependencyType.INHERIT, superType));
 		}
 		for (TypeEntity interfaceType : type.getImplementedTypes()) {
-			type.addRelation(buildRelation(type, DependencyType.IMPLEMENT, interfaceType));
+			addRelation(type, buildRelation(type, DependencyType.IMPLEMENT, interfaceType));
 		}
 		if (type instanceof IDelegateProviderType delegateProviderType) {
 			TypeEntity delegateProvider = delegateProviderType.getDelegateProviderType();
 			if (delegateProvider != null) {
-				type.addRelation(buildRelation(type, DependencyType.DELEGATE, delegateProvider));
+				addRelation(type, buildRelation(type, DependencyType.DELEGATE, delegateProvider));
 			}
 		}
 	}
 
 	private void computeFunctionRelations(FunctionEntity func) {
 		for (Entity returnType : func.getReturnTypes()) {
-			func.addRelation(buildRelation(func, DependencyType.RETURN, returnType.getActualReferTo()));
+			addRelation(func, buildRelation(func, DependencyType.RETURN, returnType.getActualReferTo()));
 		}
 		ArrayList<VarEntity> parameters = func.getParameters();
 		for (int i = 0, parametersSize = parameters.size(); i < parametersSize; i++) {
 			VarEntity parameter = parameters.get(i);
 			if (parameter.getType() != null) {
 				if (i == 0 && func.isExtension()) {
-					func.addRelation(buildRelation(func, DependencyType.EXTENSION, parameter.getActualReferTo()));
+					addRelation(func, buildRelation(func, DependencyType.EXTENSION, parameter.getActualReferTo()));
 				} else {
-					func.addRelation(buildRelation(func, DependencyType.PARAMETER, parameter.getActualReferTo()));
+					addRelation(func, buildRelation(func, DependencyType.PARAMETER, parameter.getActualReferTo()));
 				}
 			}
 		}
 		for (Entity throwType : func.getThrowTypes()) {
-			func.addRelation(buildRelation(func, DependencyType.THROW, throwType));
+			addRelation(func, buildRelation(func, DependencyType.THROW, throwType));
 		}
 		for (Entity type : func.getResolvedTypeParameters()) {
-			func.addRelation(buildRelation(func, DependencyType.PARAMETER, type));
+			addRelation(func, buildRelation(func, DependencyType.PARAMETER, type));
 		}
 		if (func instanceof FunctionEntityImpl funcImpl) {
 			if (funcImpl.getImplemented() != null) {
-				func.addRelation(buildRelation(func, DependencyType.IMPLEMENT, funcImpl.getImplemented()));
+				addRelation(func, buildRelation(func, DependencyType.IMPLEMENT, funcImpl.getImplemented()));
 			}
 		}
 	}
@@ -255,9 +287,9 @@ public class RelationCounter {
 		for (Entity imported : imports) {
 			if (imported instanceof FileEntity) {
 				if (((FileEntity) imported).isInProjectScope())
-					file.addRelation(buildRelation(file, DependencyType.IMPORT, imported));
+					addRelation(file, buildRelation(file, DependencyType.IMPORT, imported));
 			} else {
-				file.addRelation(buildRelation(file, DependencyType.IMPORT, imported));
+				addRelation(file, buildRelation(file, DependencyType.IMPORT, imported));
 			}
 		}
 	}
@@ -0,0 +1,33 @@
+package depends.relations;
+
+import depends.entity.Entity;
+
+import java.util.Collection;
+
+/**
+ * Receives relations as soon as {@link RelationCounter} finds them,
+ * instead of keeping them on entities.<br>
+ * 在RelationCounter发现依赖关系时立即接收，而不是保存在实体上
+ */
+@FunctionalInterface
+public interface RelationSink {
+	/**
+	 * @param from     the entity which depends on another
+	 * @param to       the entity depended on
+	 * @param type     the code of dependency type, see {@link depends.deptypes.DependencyTypeRegistry}
+	 * @param line     the line where the relation happens, or {@link RelationStore#NO_LINE}
+	 * @param possible whether it is a possible dependency
+	 */
+	void onRelation(Entity from, Entity to, int type, int line, boolean possible);
+
+	/**
+	 * @return a sink which passes each relation to all the sinks
+	 */
+	static RelationSink of(Collection<? extends RelationSink> sinks) {
+		return (from, to, type, line, possible) -> {
+			for (RelationSink sink : sinks) {
+				sink.onRelation(from, to, type, line, possible);
+			}
+		};
+	}
+}
@@ -0,0 +1,183 @@
+package depends.relations;
+
+import depends.deptypes.DependencyTypeRegistry;
+import depends.entity.Entity;
+import depends.entity.Location;
+import depends.entity.repo.EntityRepo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Relations of all entities packed into primitive arrays.<br>
+ * 以基本类型数组紧凑存储的所有实体的依赖关系
+ * <p>
+ * Each edge is stored as (from id, to id, type code, line, possible flag).
+ * Edges of the same entity are chained in the order they are added,
+ * so the relations of an entity could be visited without any object allocated.
+ * {@link Relation} objects are only created by {@link #relationsOf(int)} for compatibility.
+ */
+public class RelationStore {
+	public interface RelationVisitor {
+		/**
+		 * @param to       the entity depended on
+		 * @param type     the code of dependency type, see {@link DependencyTypeRegistry}
+		 * @param line     the line where the relation happens, or {@link #NO_LINE}
+		 * @param possible whether it is a possible dependency
+		 */
+		void visit(Entity to, int type, int line, boolean possible);
+	}
+
+	public interface EdgeVisitor {
+		void visit(int from, Entity to, int type, int line, boolean possible);
+	}
+
+	public static final int NO_LINE = Location.UNKNOWN;
+	private static final int NO_EDGE = -1;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final EntityRepo repo;
+	private int size = 0;
+	private int[] from = new int[INITIAL_CAPACITY];
+	/**
+	 * Id of the target entity. Targets which are not in the repo (e.g. candidate types)
+	 * are encoded as {@code -(index in foreignEntities) - 1}
+	 */
+	private int[] to = new int[INITIAL_CAPACITY];
+	/**
+	 * Type code shifted left by one, with the possible flag as the lowest bit
+	 */
+	private int[] typeAndFlag = new int[INITIAL_CAPACITY];
+	private int[] line = new int[INITIAL_CAPACITY];
+	private int[] next = new int[INITIAL_CAPACITY];
+	/* first and last edge of each entity, indexed by entity id */
+	private int[] head = new int[0];
+	private int[] tail = new int[0];
+	/* entities of the repo encoded so far, indexed by entity id, so edges are decoded without a repo lookup */
+	private Entity[] entities = new Entity[0];
+
+	private final ArrayList<Entity> foreignEntities = new ArrayList<>();
+	private final HashMap<Entity, Integer> foreignIndex = new HashMap<>();
+
+	public RelationStore(EntityRepo repo) {
+		this.repo = repo;
+	}
+
+	public void add(int fromId, Relation relation) {
+		add(fromId, relation.getEntity(), DependencyTypeRegistry.code(relation.getType()),
+				relation.fromLine(), relation.possible());
+	}
+
+	/**
+	 * @param type the code of dependency type, see {@link DependencyTypeRegistry#code(String)}
+	 */
+	public void add(int fromId, Entity toEntity, int type, int fromLine, boolean possible) {
+		if (toEntity == null) return;
+		ensureCapacity(size + 1);
+		ensureEntityCapacity(fromId + 1);
+		int edge = size++;
+		from[edge] = fromId;
+		to[edge] = encodeEntity(toEntity);
+		typeAndFlag[edge] = (type << 1) | (possible ? 1 : 0);
+		line[edge] = fromLine;
+		next[edge] = NO_EDGE;
+		if (head[fromId] == NO_EDGE) {
+			head[fromId] = edge;
+		} else {
+			next[tail[fromId]] = edge;
+		}
+		tail[fromId] = edge;
+	}
+
+	public boolean hasRelations(int fromId) {
+		return fromId >= 0 && fromId < head.length && head[fromId] != NO_EDGE;
+	}
+
+	/**
+	 * Visit the relations of the entity in the order they are added
+	 */
+	public void forEachRelationOf(int fromId, RelationVisitor visitor) {
+		if (!hasRelations(fromId)) return;
+		for (int edge = head[fromId]; edge != NO_EDGE; edge = next[edge]) {
+			int code = typeAndFlag[edge];
+			visitor.visit(decodeEntity(to[edge]), code >>> 1, line[edge], (code & 1) != 0);
+		}
+	}
+
+	/**
+	 * Visit all edges in the order they are added
+	 */
+	public void forEach(EdgeVisitor visitor) {
+		for (int edge = 0; edge < size; edge++) {
+			int code = typeAndFlag[edge];
+			visitor.visit(from[edge], decodeEntity(to[edge]), code >>> 1, line[edge], (code & 1) != 0);
+		}
+	}
+
+	/**
+	 * Materialize the relations of the entity as {@link Relation} objects
+	 */
+	public ArrayList<Relation> relationsOf(int fromId) {
+		ArrayList<Relation> relations = new ArrayList<>();
+		forEachRelationOf(fromId, (toEntity, type, fromLine, possible) ->
+				relations.add(new Relation(DependencyTypeRegistry.nameOf(type), toEntity, fromLine, possible)));
+		return relations;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+		Arrays.fill(head, NO_EDGE);
+		Arrays.fill(tail, NO_EDGE);
+		Arrays.fill(entities, null);
+		foreignEntities.clear();
+		foreignIndex.clear();
+	}
+
+	private int encodeEntity(Entity entity) {
+		Integer id = entity.getId();
+		if (id >= 0) {
+			if (id < entities.length && entities[id] == entity) return id;
+			// the repo is only asked the first time an entity is depended on
+			if ((id >= entities.length || entities[id] == null) && repo.getEntity(id) == entity) {
+				if (id >= entities.length)
+					entities = Arrays.copyOf(entities, Math.max(id + 1, Math.max(entities.length * 2, INITIAL_CAPACITY)));
+				entities[id] = entity;
+				return id;
+			}
+		}
+		return -foreignIndex.computeIfAbsent(entity, e -> {
+			foreignEntities.add(e);
+			return foreignEntities.size() - 1;
+		}) - 1;
+	}
+
+	private Entity decodeEntity(int code) {
+		if (code < 0) return foreignEntities.get(-code - 1);
+		return entities[code];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= from.length) return;
+		int newCapacity = Math.max(capacity, from.length * 2);
+		from = Arrays.copyOf(from, newCapacity);
+		to = Arrays.copyOf(to, newCapacity);
+		typeAndFlag = Arrays.copyOf(typeAndFlag, newCapacity);
+		line = Arrays.copyOf(line, newCapacity);
+		next = Arrays.copyOf(next, newCapacity);
+	}
+
+	private void ensureEntityCapacity(int capacity) {
+		if (capacity <= head.length) return;
+		int oldLength = head.length;
+		int newCapacity = Math.max(capacity, Math.max(oldLength * 2, INITIAL_CAPACITY));
+		head = Arrays.copyOf(head, newCapacity);
+		tail = Arrays.copyOf(tail, newCapacity);
+		Arrays.fill(head, oldLength, newCapacity, NO_EDGE);
+		Arrays.fill(tail, oldLength, newCapacity, NO_EDGE);
+	}
+}
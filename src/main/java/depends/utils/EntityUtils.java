@@ -5,18 +5,31 @@ import depends.entity.FileEntity;
 import org.jetbrains.annotations.NotNull;
 
 public class EntityUtils {
+	public static final String UNKNOWN_LANGUAGE = "Unknown";
+
+	/**
+	 * @return the language of the file which the entity belongs to.
+	 * It is decided by the suffix when the file entity is created, so the lookup does not walk the whole parent chain.
+	 */
 	public static @NotNull String getLanguage(@NotNull Entity entity) {
-		if (entity instanceof FileEntity fileEntity) {
-			String qualifiedName = fileEntity.getQualifiedName();
-			if (qualifiedName.endsWith(".kt")) {
-				return "Kotlin";
-			}
-			if (qualifiedName.endsWith(".java")) {
-				return "Java";
-			}
+		Entity file = entity.getAncestorOfType(FileEntity.class);
+		if (file == null)
+			file = entity.getAncestorOfTypeInstance(FileEntity.class);
+		if (file == null)
+			return UNKNOWN_LANGUAGE;
+		return ((FileEntity) file).getLanguage();
+	}
+
+	/**
+	 * @return the language of the file by its suffix
+	 */
+	public static @NotNull String languageOfFileName(@NotNull String fileName) {
+		if (fileName.endsWith(".kt")) {
+			return "Kotlin";
+		}
+		if (fileName.endsWith(".java")) {
+			return "Java";
 		}
-		if (entity.getParent() == null)
-			return "Unknown";
-		return getLanguage(entity.getParent());
+		return UNKNOWN_LANGUAGE;
 	}
 }
@@ -0,0 +1,128 @@
+package depends.utils;
+
+import multilang.depends.util.file.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of canonical paths and directory listings.<br>
+ * 进程级的规范路径与目录列表缓存
+ * <p>
+ * Source trees are not changed during a run, so a path is canonicalized only once,
+ * and whether a file exists is answered from the listing of its directory,
+ * which is read only once, instead of a stat call per probe.
+ * The listing is authoritative, so a miss costs no stat call either. On case-insensitive file systems,
+ * which are detected once per file store, the names are compared case-folded.
+ * The caches are cleared per run, see {@link #clear()}.
+ */
+public final class PathCache {
+	private static final ConcurrentHashMap<String, String> canonicalPaths = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, Listing> directoryEntries = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<FileStore, Boolean> caseInsensitiveStores = new ConcurrentHashMap<>();
+
+	/**
+	 * Names of a directory, folded to lower case if the file system is case-insensitive
+	 */
+	private record Listing(Set<String> names, boolean caseInsensitive) {
+		private static final Listing EMPTY = new Listing(Collections.emptySet(), false);
+
+		boolean contains(String name) {
+			return names.contains(caseInsensitive ? fold(name) : name);
+		}
+	}
+
+	private PathCache() {
+	}
+
+	/**
+	 * Same as {@link FileUtil#uniqFilePath(String)}, but cached
+	 */
+	public static String uniqFilePath(String filePath) {
+		String canonical = canonicalPaths.get(filePath);
+		if (canonical != null) return canonical;
+		canonical = FileUtil.uniqFilePath(filePath);
+		canonicalPaths.put(filePath, canonical);
+		// the canonical path of a canonical path is itself
+		canonicalPaths.putIfAbsent(canonical, canonical);
+		return canonical;
+	}
+
+	/**
+	 * Same as {@link FileUtil#existFile(String)}, but answered by the cached listing of the parent directory
+	 */
+	public static boolean existFile(String path) {
+		File file = new File(path).getAbsoluteFile();
+		String name = file.getName();
+		String parent = file.getParent();
+		if (parent == null || name.isEmpty() || name.equals(".") || name.equals("..")) {
+			return file.exists();
+		}
+		return entriesOf(parent).contains(name);
+	}
+
+	/**
+	 * Forget all cached paths, at the start and the end of a run, or when files are changed
+	 */
+	public static void clear() {
+		canonicalPaths.clear();
+		directoryEntries.clear();
+		caseInsensitiveStores.clear();
+	}
+
+	private static Listing entriesOf(String directory) {
+		return directoryEntries.computeIfAbsent(directory, dir -> {
+			File file = new File(dir);
+			String[] names = file.list();
+			if (names == null) return Listing.EMPTY;
+			boolean caseInsensitive = isCaseInsensitive(file, names);
+			Set<String> entries = new HashSet<>(names.length * 4 / 3 + 1);
+			for (String name : names) {
+				entries.add(caseInsensitive ? fold(name) : name);
+			}
+			return new Listing(entries, caseInsensitive);
+		});
+	}
+
+	/**
+	 * Detect once per file store whether names are case-insensitive,
+	 * by looking up a listed name in another case
+	 */
+	private static boolean isCaseInsensitive(File directory, String[] names) {
+		FileStore store;
+		try {
+			store = Files.getFileStore(directory.toPath());
+		} catch (IOException | RuntimeException e) {
+			return Boolean.TRUE.equals(probeCaseInsensitive(directory, names));
+		}
+		Boolean caseInsensitive = caseInsensitiveStores.get(store);
+		if (caseInsensitive != null) return caseInsensitive;
+		caseInsensitive = probeCaseInsensitive(directory, names);
+		// undecided if no listed name could be probed, then decided by the next directory of the store
+		if (caseInsensitive == null) return false;
+		caseInsensitiveStores.putIfAbsent(store, caseInsensitive);
+		return caseInsensitive;
+	}
+
+	private static Boolean probeCaseInsensitive(File directory, String[] names) {
+		Set<String> listed = Set.of(names);
+		for (String name : names) {
+			String other = name.toUpperCase(Locale.ROOT);
+			if (other.equals(name)) other = name.toLowerCase(Locale.ROOT);
+			if (other.equals(name) || listed.contains(other)) continue;
+			return new File(directory, other).exists();
+		}
+		return null;
+	}
+
+	private static String fold(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,49 @@
+package depends.entity;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class EntityTest {
+	@Test
+	public void test_visible_names_of_leaf_are_its_own_names_until_children_are_added() {
+		TypeEntity type = new TypeEntity(GenericName.build("A"), null, 1);
+		VarEntity var = new VarEntity(GenericName.build("x"), GenericName.build("int"), type, 2);
+		assertTrue(var.getChildren().isEmpty());
+		assertSame(var, var.getByName("x", new HashSet<>()));
+		assertSame(var, var.getByName("A.x", new HashSet<>()));
+		assertNull(var.getByName("y", new HashSet<>()));
+		assertSame(var, type.getByName("x", new HashSet<>()));
+
+		// the names the entity is built with stay visible after it is renamed
+		var.setQualifiedName("x");
+		assertSame(var, var.getByName("A.x", new HashSet<>()));
+
+		FunctionEntity function = new FunctionEntity(GenericName.build("f"), type, 3, null);
+		VarEntity parameter = new VarEntity(GenericName.build("p"), GenericName.build("int"), function, 4);
+		assertSame(function, function.getByName("A.f", new HashSet<>()));
+		assertSame(parameter, function.getByName("p", new HashSet<>()));
+		assertEquals(1, function.getChildren().size());
+	}
+
+	@Test
+	public void test_cached_ancestors_follow_a_moved_subtree() {
+		FileEntity a = new FileEntity(false, "a.java", 1);
+		FileEntity b = new FileEntity(false, "b.java", 2);
+		TypeEntity type = new TypeEntity(GenericName.build("A"), a, 3);
+		FunctionEntity function = new FunctionEntity(GenericName.build("f"), type, 4, null);
+		VarEntity var = new VarEntity(GenericName.build("x"), GenericName.build("int"), function, 5);
+		assertSame(a, var.getAncestorOfType(FileEntity.class));
+		assertSame(type, var.getAncestorOfType(TypeEntity.class));
+		assertSame(function, var.getAncestorOfType(FunctionEntity.class));
+		assertSame(function, function.getAncestorOfType(FunctionEntity.class));
+
+		Entity.setParent(type, b);
+		assertSame(b, var.getAncestorOfType(FileEntity.class));
+		assertSame(b, function.getAncestorOfType(FileEntity.class));
+		assertSame(a, a.getAncestorOfType(FileEntity.class));
+		assertNull(b.getAncestorOfType(TypeEntity.class));
+	}
+}
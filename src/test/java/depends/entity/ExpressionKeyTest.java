@@ -0,0 +1,68 @@
+package depends.entity;
+
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class ExpressionKeyTest {
+	private static ParserRuleContext context(int start, int stop) {
+		ParserRuleContext ctx = new ParserRuleContext();
+		CommonToken startToken = new CommonToken(1);
+		startToken.setTokenIndex(start);
+		CommonToken stopToken = new CommonToken(1);
+		stopToken.setTokenIndex(stop);
+		ctx.start = startToken;
+		ctx.stop = stopToken;
+		return ctx;
+	}
+
+	@Test
+	public void test_contexts_are_keyed_by_token_range() {
+		FileEntity file = new FileEntity(false, "a.java", 0);
+		// the expression map is weakly referenced by the container
+		HashMap<Object, Expression> expressions = file.expressions();
+		Expression expression = new Expression(1);
+		file.addExpression(context(3, 5), expression);
+		assertTrue(expressions.containsKey(context(3, 5)));
+		assertSame(expression, expressions.get(context(3, 5)));
+		assertFalse(expressions.containsKey(context(3, 6)));
+		assertEquals(new ExpressionKey(3, 5, -1, 0), expressions.keySet().iterator().next());
+	}
+
+	@Test
+	public void test_nested_context_of_same_rule_and_range_is_another_key() {
+		FileEntity file = new FileEntity(false, "a.java", 0);
+		HashMap<Object, Expression> expressions = file.expressions();
+		ParserRuleContext outer = context(3, 5);
+		// e.g. a unit production of the rule
+		ParserRuleContext inner = context(3, 5);
+		inner.parent = outer;
+		Expression outerExpression = new Expression(1);
+		Expression innerExpression = new Expression(2);
+		file.addExpression(outer, outerExpression);
+		file.addExpression(inner, innerExpression);
+		assertEquals(2, expressions.size());
+		assertSame(outerExpression, expressions.get(outer));
+		assertSame(innerExpression, expressions.get(inner));
+	}
+
+	@Test
+	public void test_all_key_methods_convert_contexts() {
+		FileEntity file = new FileEntity(false, "a.java", 0);
+		HashMap<Object, Expression> expressions = file.expressions();
+		Expression first = new Expression(1);
+		Expression second = new Expression(2);
+		expressions.merge(context(1, 2), first, (a, b) -> b);
+		assertSame(first, expressions.get(context(1, 2)));
+		assertSame(first, expressions.replace(context(1, 2), second));
+		assertTrue(expressions.replace(context(1, 2), second, first));
+		assertSame(second, expressions.compute(context(1, 2), (key, value) -> second));
+		assertSame(first, expressions.computeIfPresent(context(1, 2), (key, value) -> first));
+		assertTrue(expressions.remove(context(1, 2), first));
+		assertTrue(expressions.isEmpty());
+	}
+}
@@ -0,0 +1,85 @@
+package depends.entity;
+
+import net.sf.ehcache.CacheManager;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExpressionStoreTest {
+	@After
+	public void tearDown() {
+		ExpressionStore.getInstance().clear();
+		ExpressionStore.getInstance().setHeapBudget(-1);
+	}
+
+	@Test
+	public void test_coldest_container_is_spilled_over_budget() throws Exception {
+		ExpressionStore store = ExpressionStore.getInstance();
+		store.setHeapBudget(ExpressionStore.BYTES_PER_EXPRESSION);
+		FileEntity a = new FileEntity(false, "a.java", 1001);
+		FileEntity b = new FileEntity(false, "b.java", 1002);
+		store.put(a, new ArrayList<>(List.of(new Expression(1))));
+		assertNotNull(store.get(a));
+		store.put(b, new ArrayList<>(List.of(new Expression(2))));
+		assertNull(store.get(a));
+		assertEquals(1, store.read(a.getId()).size());
+		assertEquals(Integer.valueOf(2), store.get(b).get(0).id);
+		store.discard(b);
+		assertNull(store.get(b));
+	}
+
+	@Test
+	public void test_heap_tier_statistics_count_hits_misses_and_evictions() throws Exception {
+		ExpressionStore store = ExpressionStore.getInstance();
+		store.setHeapBudget(ExpressionStore.BYTES_PER_EXPRESSION);
+		FileEntity a = new FileEntity(false, "a.java", 1003);
+		FileEntity b = new FileEntity(false, "b.java", 1004);
+		store.put(a, new ArrayList<>(List.of(new Expression(1))));
+		store.put(b, new ArrayList<>(List.of(new Expression(2))));
+		assertNotNull(store.get(b));
+		assertNull(store.get(a));
+		// a container read back from disk and kept again is served from heap
+		store.put(a, store.read(a.getId()));
+		assertNotNull(store.get(a));
+		String statistics = store.getStatistics();
+		assertTrue(statistics, statistics.contains("heap hits: 2, misses: 1, evictions: 2"));
+		assertTrue(statistics, statistics.contains("disk reads: 1"));
+	}
+
+	@Test
+	public void test_kept_expressions_survive_shutdown_of_shared_cache_manager() {
+		ExpressionStore store = ExpressionStore.getInstance();
+		FileEntity a = new FileEntity(false, "a.java", 1005);
+		store.put(a, new ArrayList<>(List.of(new Expression(1))));
+		CacheManager.create().shutdown();
+		assertEquals(Integer.valueOf(1), store.get(a).get(0).id);
+	}
+
+	@Test
+	public void test_kept_bytes_are_bounded_by_budget() throws Exception {
+		ExpressionStore store = ExpressionStore.getInstance();
+		store.setHeapBudget(3 * ExpressionStore.BYTES_PER_EXPRESSION);
+		FileEntity a = new FileEntity(false, "a.java", 1006);
+		FileEntity b = new FileEntity(false, "b.java", 1007);
+		FileEntity c = new FileEntity(false, "c.java", 1008);
+		FileEntity d = new FileEntity(false, "d.java", 1009);
+		store.put(a, new ArrayList<>(List.of(new Expression(1))));
+		store.put(b, new ArrayList<>(List.of(new Expression(2))));
+		assertNotNull(store.get(a));
+		// three containers fit by the average size, but not by the bytes
+		store.put(c, new ArrayList<>(List.of(new Expression(3), new Expression(4))));
+		assertNull(store.get(b));
+		assertNotNull(store.get(a));
+		assertNotNull(store.get(c));
+		assertEquals(1, store.read(b.getId()).size());
+		// larger than the budget by itself
+		store.put(d, new ArrayList<>(List.of(new Expression(5), new Expression(6), new Expression(7), new Expression(8))));
+		assertNull(store.get(d));
+		assertEquals(4, store.read(d.getId()).size());
+		assertNotNull(store.get(a));
+	}
+}
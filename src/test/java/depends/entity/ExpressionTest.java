@@ -0,0 +1,60 @@
+package depends.entity;
+
+import depends.entity.repo.InMemoryEntityRepo;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExpressionTest {
+	@Test
+	public void test_packed_fields_survive_spill_and_reload() throws Exception {
+		InMemoryEntityRepo repo = new InMemoryEntityRepo();
+		FileEntity file = new FileEntity(false, "a.java", 1);
+		repo.add(file);
+		Expression call = new Expression(10);
+		call.setCall(true);
+		call.setDot(true);
+		call.setExplicitCallReferredEntity(true);
+		call.setContainer(file);
+		Expression caller = new Expression(11);
+		Expression parameter = new Expression(12);
+		parameter.setParameter(true);
+		parameter.setParent(call);
+		call.setCaller(caller);
+		call.addCallParameter(parameter);
+		call.setReferredEntity(TypeEntity.buildInType);
+		assertTrue(caller.callParameters().isEmpty());
+		assertEquals(0, parameter.getParameterIndex());
+
+		ArrayList<Expression> reloaded = roundTrip(new ArrayList<>(List.of(call, caller, parameter)));
+		for (Expression expr : reloaded) {
+			expr.reload(repo, reloaded);
+		}
+		Expression reloadedCall = reloaded.get(0);
+		assertTrue(reloadedCall.isCall());
+		assertTrue(reloadedCall.isDot());
+		assertFalse(reloadedCall.isSet());
+		assertTrue(reloadedCall.isExplicitCallReferredEntity());
+		assertSame(file, reloadedCall.getContainer());
+		assertSame(reloaded.get(1), reloadedCall.getCaller());
+		assertEquals(List.of(reloaded.get(2)), reloadedCall.getCallParameters());
+		assertSame(reloadedCall, reloaded.get(2).getParent());
+		assertTrue(reloaded.get(2).isParameter());
+		assertEquals(0, reloaded.get(2).getParameterIndex());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArrayList<Expression> roundTrip(ArrayList<Expression> expressions) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(expressions);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (ArrayList<Expression>) in.readObject();
+		}
+	}
+}
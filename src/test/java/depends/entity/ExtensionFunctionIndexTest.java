@@ -0,0 +1,40 @@
+package depends.entity;
+
+import depends.entity.repo.InMemoryEntityRepo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExtensionFunctionIndexTest {
+	@Test
+	public void test_extension_with_empty_type_arguments_is_found_by_name() {
+		InMemoryEntityRepo repo = new InMemoryEntityRepo();
+		FileEntity file = new FileEntity(false, "a.kt", 1);
+		TypeEntity receiver = new TypeEntity(GenericName.build("R"), file, 2);
+		FunctionEntity extension = new FunctionEntity(GenericName.build("f"), file, 3, null);
+		extension.setExtension(true);
+		extension.addTypeParameter(new ArrayList<>());
+		VarEntity self = new VarEntity(GenericName.build("self"), GenericName.build("R"), extension, 4);
+		self.setType(receiver);
+		extension.addParameter(self);
+		file.addFunction(extension);
+		FunctionEntity other = new FunctionEntity(GenericName.build("g"), file, 5, null);
+		repo.add(file);
+		repo.add(receiver);
+		repo.add(extension);
+		repo.add(self);
+		repo.add(other);
+
+		ExtensionFunctionIndex index = new ExtensionFunctionIndex(repo);
+		List<Entity> found = new ArrayList<>();
+		index.processVisibleExtensions(other, receiver, GenericName.build("f"), false, found::add);
+		assertEquals(List.of(extension), found);
+
+		found.clear();
+		index.processVisibleExtensions(other, receiver, GenericName.build("g"), false, found::add);
+		assertTrue(found.isEmpty());
+	}
+}
@@ -0,0 +1,55 @@
+package depends.entity;
+
+import depends.relations.IBindingResolver;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ImportedFileCollectorTest {
+	@Test
+	public void test_files_of_an_import_cycle_share_one_closure() {
+		FileEntity a = new FileEntity(false, "a.h", 1);
+		FileEntity b = new FileEntity(false, "b.h", 2);
+		FileEntity c = new FileEntity(false, "c.h", 3);
+		importFiles(a, b);
+		importFiles(b, a, c);
+		importFiles(c);
+
+		assertEquals(Set.of(a, b, c), a.getImportedFilesInAllLevel());
+		assertSame(a.getImportedFilesInAllLevel(), b.getImportedFilesInAllLevel());
+		assertEquals(Set.of(c), c.getImportedFilesInAllLevel());
+	}
+
+	@Test
+	public void test_closures_are_kept_until_imported_files_change() {
+		FileEntity a = new FileEntity(false, "a.h", 1);
+		FileEntity b = new FileEntity(false, "b.h", 2);
+		FileEntity c = new FileEntity(false, "c.h", 3);
+		importFiles(a, b);
+		importFiles(b);
+		importFiles(c);
+		Set<FileEntity> closure = a.getImportedFilesInAllLevel();
+		assertEquals(Set.of(a, b), closure);
+
+		importFiles(b);
+		importFiles(a, b);
+		assertSame(closure, a.getImportedFilesInAllLevel());
+
+		importFiles(b, c);
+		assertEquals(Set.of(a, b, c), a.getImportedFilesInAllLevel());
+	}
+
+	private static void importFiles(FileEntity file, FileEntity... importedFiles) {
+		List<Entity> files = new ArrayList<>(Arrays.asList(importedFiles));
+		file.inferLocalLevelEntities((IBindingResolver) Proxy.newProxyInstance(IBindingResolver.class.getClassLoader(),
+				new Class<?>[]{IBindingResolver.class}, (proxy, method, args) -> {
+					if (method.getName().equals("getImportedFiles")) return files;
+					if (method.getReturnType() == boolean.class) return false;
+					if (Collection.class.isAssignableFrom(method.getReturnType())) return new ArrayList<>();
+					return null;
+				}));
+	}
+}
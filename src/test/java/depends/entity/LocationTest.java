@@ -0,0 +1,30 @@
+package depends.entity;
+
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+public class LocationTest {
+	@Test
+	public void test_unknown_values_are_null_and_survive_serialization() throws Exception {
+		Location location = new Location();
+		location.setLine(12);
+		location.setStopIndex(40);
+		assertNull(location.getStartIndex());
+		assertEquals(Location.UNKNOWN, location.startIndex());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(location);
+		}
+		Location read;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			read = (Location) in.readObject();
+		}
+		assertEquals(Integer.valueOf(12), read.getLine());
+		assertNull(read.getStartIndex());
+		assertEquals(Integer.valueOf(40), read.getStopIndex());
+	}
+}
@@ -0,0 +1,36 @@
+package depends.entity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TypeEntityTest {
+	@Test
+	public void test_members_are_found_after_hierarchy_is_fixed() {
+		TypeEntity base = new TypeEntity(GenericName.build("B"), null, 1);
+		TypeEntity type = new TypeEntity(GenericName.build("C"), null, 2);
+		type.inheritedTypes.add(base);
+		VarEntity field = new VarEntity(GenericName.build("x"), GenericName.build("int"), type, 3);
+		// fields get an empty list of type arguments from the extractors
+		field.addTypeParameter(new ArrayList<>());
+		type.addVar(field);
+		VarEntity inheritedField = new VarEntity(GenericName.build("y"), GenericName.build("int"), base, 4);
+		base.addVar(inheritedField);
+		FunctionEntity function = new FunctionEntity(GenericName.build("f"), base, 5, null);
+		base.addFunction(function);
+
+		assertSame(field, type.lookupVarLocally(GenericName.build("x")));
+		base.fixHierarchy(0);
+		type.fixHierarchy(1);
+		assertSame(field, type.lookupVarLocally(GenericName.build("x")));
+		assertSame(inheritedField, type.lookupVarLocally(GenericName.build("y")));
+		assertSame(function, type.lookupFunctionLocally(GenericName.build("f")));
+		assertNull(type.lookupVarLocally(GenericName.build("f")));
+		assertNull(type.lookupFunctionLocally(GenericName.build("f", new ArrayList<>(List.of(GenericName.build("T"))))));
+		assertTrue(type.isTypeParent(base, true));
+		assertFalse(base.isTypeParent(type, true));
+	}
+}
@@ -0,0 +1,47 @@
+package depends.entity.repo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QualifiedNameTrieTest {
+
+	@Test
+	public void test_longest_prefix() {
+		QualifiedNameTrie<String> trie = new QualifiedNameTrie<>();
+		trie.put("a", "a");
+		trie.put("a.b", "a.b");
+		trie.put("a.b.c.d", "a.b.c.d");
+		assertEquals("a.b".length(), trie.longestPrefix("a.b.c"));
+		assertEquals("a.b.c.d".length(), trie.longestPrefix("a.b.c.d.e"));
+		assertEquals("a".length(), trie.longestPrefix("a.x.b"));
+		assertEquals(-1, trie.longestPrefix("ab.c"));
+		assertEquals(-1, trie.longestPrefix("b"));
+	}
+
+	@Test
+	public void test_get_child() {
+		QualifiedNameTrie<String> trie = new QualifiedNameTrie<>();
+		trie.put("a.b", "a.b");
+		trie.put("a..c", "a..c");
+		assertEquals("a.b", trie.get("a.b"));
+		assertNull(trie.get("a"));
+		assertEquals("a.b", trie.getChild("a", "b"));
+		assertEquals("a..c", trie.getChild("a.", "c"));
+		assertNull(trie.getChild("a", "c"));
+	}
+
+	@Test
+	public void test_suffix_match() {
+		QualifiedNameTrie<String> trie = QualifiedNameTrie.suffixTrie();
+		trie.put("a.b.ClassX", "a.b.ClassX");
+		trie.put("c.b.ClassX", "c.b.ClassX");
+		trie.put("ClassY", "ClassY");
+		assertEquals("a.b.ClassX", trie.suffixMatch("ClassX"));
+		assertEquals("a.b.ClassX", trie.suffixMatch("b.ClassX"));
+		assertEquals("c.b.ClassX", trie.suffixMatch("c.b.ClassX"));
+		assertEquals("ClassY", trie.suffixMatch("ClassY"));
+		assertNull(trie.suffixMatch("lassX"));
+		assertNull(trie.suffixMatch("x.a.b.ClassX"));
+	}
+}
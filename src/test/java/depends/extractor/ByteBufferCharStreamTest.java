@@ -0,0 +1,37 @@
+package depends.extractor;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ByteBufferCharStreamTest {
+	@Test
+	public void test_same_as_code_point_stream() {
+		String text = "class A {\n\tint a = 1;\n}";
+		CharStream expected = CharStreams.fromString(text);
+		CharStream actual = new ByteBufferCharStream(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)), "A.java");
+		assertEquals(expected.size(), actual.size());
+		while (expected.LA(1) != IntStream.EOF) {
+			assertEquals(expected.LA(1), actual.LA(1));
+			assertEquals(expected.LA(-1), actual.LA(-1));
+			expected.consume();
+			actual.consume();
+		}
+		assertEquals(IntStream.EOF, actual.LA(1));
+		assertEquals(expected.getText(Interval.of(6, 30)), actual.getText(Interval.of(6, 30)));
+		assertEquals(text, actual.toString());
+	}
+
+	@Test
+	public void test_non_ascii_is_detected() {
+		assertTrue(ByteBufferCharStream.isAscii(ByteBuffer.wrap("abc".getBytes(StandardCharsets.UTF_8))));
+		assertFalse(ByteBufferCharStream.isAscii(ByteBuffer.wrap("中文".getBytes(StandardCharsets.UTF_8))));
+	}
+}
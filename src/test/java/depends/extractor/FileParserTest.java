@@ -0,0 +1,68 @@
+package depends.extractor;
+
+import depends.entity.repo.InMemoryEntityRepo;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileParserTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * A parser reading its input as a plugin would, recording what it reads
+	 */
+	private static class TextParser extends FileParser {
+		final List<String> texts = new ArrayList<>();
+		final List<ByteBuffer> sources = new ArrayList<>();
+
+		TextParser() {
+			this.entityRepo = new InMemoryEntityRepo();
+		}
+
+		@Override
+		protected void parseFile(@NotNull String filePath, @NotNull List<ParseTreeListener> extraListeners) throws IOException {
+			sources.add(readSource(filePath));
+			// a second stream, e.g. for another listener, reuses the content
+			for (int i = 0; i < 2; i++) {
+				CharStream input = openCharStream(filePath);
+				texts.add(input.getText(Interval.of(0, input.size() - 1)));
+			}
+		}
+	}
+
+	@Test
+	public void test_small_files_are_read_into_heap() throws IOException {
+		Path ascii = Files.writeString(folder.getRoot().toPath().resolve("a.java"), "class A {}");
+		Path utf8 = Files.writeString(folder.getRoot().toPath().resolve("b.java"), "class 中文 {}");
+		TextParser parser = new TextParser();
+		parser.parse(ascii.toString());
+		parser.parse(utf8.toString());
+		assertEquals(List.of("class A {}", "class A {}", "class 中文 {}", "class 中文 {}"), parser.texts);
+		for (ByteBuffer source : parser.sources) {
+			assertFalse(source.isDirect());
+		}
+	}
+
+	@Test
+	public void test_large_files_are_mapped() throws IOException {
+		Path large = Files.write(folder.getRoot().toPath().resolve("c.java"), new byte[FileParser.MAP_THRESHOLD]);
+		TextParser parser = new TextParser();
+		parser.parse(large.toString());
+		assertTrue(parser.sources.get(0).isDirect());
+		assertEquals(FileParser.MAP_THRESHOLD, parser.texts.get(0).length());
+	}
+}
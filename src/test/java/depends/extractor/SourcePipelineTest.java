@@ -0,0 +1,42 @@
+package depends.extractor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SourcePipelineTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void test_found_files_are_handed_to_consumer() throws IOException {
+		Path dir = createSources();
+		List<String> names = new ArrayList<>();
+		try (SourcePipeline pipeline = new SourcePipeline(dir.toString(), new String[]{".java"},
+				path -> !path.endsWith("f9.java"), 2)) {
+			pipeline.forEach(path -> names.add(Path.of(path).getFileName().toString()));
+		}
+		assertEquals(9, names.size());
+		assertTrue(names.contains("f3.java"));
+		assertFalse(names.contains("f9.java"));
+		assertFalse(names.contains("readme.txt"));
+	}
+
+	private Path createSources() throws IOException {
+		Path dir = folder.getRoot().toPath();
+		Files.createDirectories(dir.resolve("sub"));
+		for (int i = 0; i < 10; i++) {
+			Files.writeString(dir.resolve(i % 2 == 0 ? "f" + i + ".java" : "sub/f" + i + ".java"), "class F" + i + "{}");
+		}
+		Files.writeString(dir.resolve("readme.txt"), "skip");
+		return dir;
+	}
+}
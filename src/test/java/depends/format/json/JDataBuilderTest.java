@@ -0,0 +1,71 @@
+package depends.format.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import depends.deptypes.DependencyTypeRegistry;
+import depends.format.FileAttributes;
+import depends.matrix.core.*;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class JDataBuilderTest {
+	private static final DependencyDetails.Materializer materializer = (from, to, line) ->
+			new DependencyDetail(new LocationInfo("" + from, "Type", "a.java", line), new LocationInfo("" + to, "Type", "b.java", 0));
+
+	private static DependencyMatrix matrix(boolean spilled) {
+		DependencyMatrix matrix = new DependencyMatrix(0, false);
+		for (int i = 0; i < 3; i++) matrix.addNode("n" + i, i);
+		if (spilled) matrix.spillDetails(new SpilledDetailStore(1, materializer));
+		int call = DependencyTypeRegistry.code("Call");
+		matrix.addDependency(call, 2, 1, 1, materializer, 20, 10, 5);
+		matrix.addDependency(call, 0, 1, 1, materializer, 1, 10, 3);
+		matrix.addDependency(call, 2, 1, 1, materializer, 21, 11, 7);
+		return matrix;
+	}
+
+	private static JsonNode streamed(DependencyMatrix matrix) throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		StringWriter out = new StringWriter();
+		try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+			new JDataBuilder().write(matrix, new FileAttributes("test"), generator);
+		}
+		return mapper.readTree(out.toString());
+	}
+
+	private static Set<JsonNode> cells(JsonNode document) {
+		Set<JsonNode> cells = new HashSet<>();
+		document.get("cells").forEach(cells::add);
+		return cells;
+	}
+
+	@Test
+	public void test_streamed_document_is_the_same_as_the_built_one() throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		DependencyMatrix inHeap = matrix(false);
+		JsonNode built = mapper.readTree(mapper.writeValueAsString(new JDataBuilder().build(inHeap, new FileAttributes("test"))));
+		JsonNode streamed = streamed(inHeap);
+		List<String> builtFields = new ArrayList<>();
+		built.fieldNames().forEachRemaining(builtFields::add);
+		List<String> streamedFields = new ArrayList<>();
+		streamed.fieldNames().forEachRemaining(streamedFields::add);
+		assertEquals(builtFields, streamedFields);
+		assertEquals(built.get("variables"), streamed.get("variables"));
+		assertEquals(cells(built), cells(streamed));
+
+		DependencyMatrix spilled = matrix(true);
+		JsonNode streamedFromDisk = streamed(spilled);
+		spilled.closeSpilledDetails();
+		assertEquals(cells(built), cells(streamedFromDisk));
+		JsonNode first = streamedFromDisk.get("cells").get(0);
+		assertEquals(0, first.get("src").asInt());
+		assertEquals(1, first.get("details").size());
+	}
+}
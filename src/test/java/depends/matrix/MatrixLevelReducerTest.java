@@ -1,8 +1,13 @@
 package depends.matrix;
 
+import depends.deptypes.DependencyType;
+import depends.matrix.core.DependencyDetail;
+import depends.matrix.core.DependencyMatrix;
 import depends.matrix.transform.MatrixLevelReducer;
 import org.junit.Test;
 
+import java.util.Map;
+
 import static org.junit.Assert.*;
 
 public class MatrixLevelReducerTest {
@@ -48,4 +53,25 @@ public class MatrixLevelReducerTest {
 		assertEquals("/maven",
 				MatrixLevelReducer.calcuateNodeAtLevel(node, 1));
 	}
+
+	@Test
+	public void test_shrink_to_levels_in_one_pass() {
+		DependencyMatrix matrix = new DependencyMatrix(0, false);
+		matrix.addNode("/a/b/c.java", 0);
+		matrix.addNode("/a/b/d.java", 1);
+		matrix.addNode("/a/e.java", 2);
+		matrix.addDependency(DependencyType.CALL, 0, 2, 1, (DependencyDetail) null);
+		matrix.addDependency(DependencyType.CALL, 1, 2, 2, (DependencyDetail) null);
+		matrix.addDependency(DependencyType.USE, 0, 1, 1, (DependencyDetail) null);
+
+		Map<Integer, DependencyMatrix> levels = new MatrixLevelReducer(matrix).shrinkToLevels(3);
+		assertEquals(1, levels.get(1).getNodes().size());
+		assertEquals(0, levels.get(1).getDependencyPairs().size());
+		DependencyMatrix level2 = levels.get(2);
+		assertEquals("[/a/b, /a/e.java]", level2.getNodes().toString());
+		assertEquals(1, level2.getDependencyPairs().size());
+		assertEquals(3, level2.getDependencyPairs().iterator().next().getDependencies().iterator().next().getWeight());
+		assertEquals(3, levels.get(3).getDependencyPairs().size());
+		assertEquals(level2.getNodes(), new MatrixLevelReducer(matrix, "2").shrinkToLevel().getNodes());
+	}
 }
@@ -0,0 +1,30 @@
+package depends.matrix.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NodeTableTest {
+	@Test
+	public void test_derived_tables_share_interned_names() {
+		DependencyMatrix matrix = new DependencyMatrix(0, false);
+		matrix.addNode(new String("/src/b.java"), 7);
+		matrix.addNode(new String("/src/a.java"), 3);
+		NodeTable nodes = matrix.getNodeTable();
+		assertEquals("/src/a.java", nodes.nameOf(3));
+		assertNull(nodes.nameOf(4));
+
+		NodeTable ordered = nodes.permute(nodes.sortedRows());
+		assertEquals("[/src/a.java, /src/b.java]", ordered.names().toString());
+		assertSame(nodes.nameOf(3), ordered.nameOf(0));
+		assertEquals(1, ordered.idAt(1));
+
+		NodeTable rewritten = ordered.rewrite(name -> name.replace("/src/", ""));
+		assertEquals("b.java", rewritten.nameOf(1));
+		assertSame(nodes.getPool(), rewritten.getPool());
+
+		matrix.addNode("/src/c.java", 9);
+		assertEquals(3, matrix.getNodes().size());
+		assertEquals("/src/c.java", matrix.getNodeName(9));
+	}
+}
@@ -0,0 +1,90 @@
+package depends.matrix.core;
+
+import depends.deptypes.DependencyType;
+import depends.deptypes.DependencyTypeRegistry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.Assert.*;
+
+public class SpilledDetailStoreTest {
+	private static final DependencyDetails.Materializer materializer = (from, to, line) ->
+			new DependencyDetail(new LocationInfo("" + from, "", "", line), new LocationInfo("" + to, "", "", 0));
+
+	@Test
+	public void test_details_are_merged_by_pair_in_insertion_order() {
+		// a tiny budget, so that every 1024 records are spilled to a run
+		SpilledDetailStore store = new SpilledDetailStore(1, materializer);
+		int count = 5000;
+		for (int i = 0; i < count; i++) {
+			store.add(i % 7, i % 3, 0, i, i, i);
+		}
+		assertEquals(count, store.size());
+		int read = 0;
+		try (SpilledDetailStore.Cursor cursor = store.cursor(id -> id)) {
+			for (int from = 0; from < 7; from++) {
+				for (int to = 0; to < 3; to++) {
+					int last = -1;
+					while (cursor.next(from, to)) {
+						int line = cursor.detail().getSrc().getLineNumber();
+						assertEquals(from, line % 7);
+						assertEquals(to, line % 3);
+						assertTrue(line > last);
+						last = line;
+						read++;
+					}
+				}
+			}
+		}
+		assertEquals(count, read);
+		store.close();
+	}
+
+	@Test
+	public void test_nodes_are_mapped_before_merge() {
+		SpilledDetailStore store = new SpilledDetailStore(1, materializer);
+		store.add(5, 6, 0, 1, 1, 1);
+		store.add(1, 2, 0, 2, 2, 2);
+		store.add(9, 2, 0, 3, 3, 3);
+		// 5->0, 6->1, 1->2, 2->3, others are dropped
+		IntUnaryOperator nodeMap = id -> id == 5 ? 0 : id == 6 ? 1 : id == 1 ? 2 : id == 2 ? 3 : -1;
+		// the runs sorted by the map are reused by the second cursor (e.g. of another output format)
+		for (int round = 0; round < 2; round++) {
+			List<Integer> lines = new ArrayList<>();
+			try (SpilledDetailStore.Cursor cursor = store.cursor(nodeMap)) {
+				while (cursor.next(0, 1)) lines.add(cursor.detail().getSrc().getLineNumber());
+				while (cursor.next(2, 3)) lines.add(cursor.detail().getSrc().getLineNumber());
+				assertFalse(cursor.next(Integer.MAX_VALUE, Integer.MAX_VALUE));
+			}
+			assertEquals(List.of(1, 2), lines);
+		}
+		store.close();
+	}
+
+	@Test
+	public void test_details_of_pair_are_grouped_by_type_as_in_heap() {
+		int call = DependencyTypeRegistry.code(DependencyType.CALL);
+		int use = DependencyTypeRegistry.code(DependencyType.USE);
+		SpilledDetailStore store = new SpilledDetailStore(1, materializer);
+		DependencyPair pair = new DependencyPair(0, 1);
+		pair.addDependency(use, 1, (DependencyDetail) null);
+		pair.addDependency(call, 1, (DependencyDetail) null);
+		store.add(0, 1, use, 1, 1, 1);
+		store.add(0, 1, call, 2, 2, 2);
+		store.add(0, 1, use, 3, 3, 3);
+		List<String> details = new ArrayList<>();
+		try (SpilledDetailStore.Cursor cursor = store.cursor(id -> id)) {
+			cursor.forEachDetail(pair, (type, detail) -> details.add(type + detail.getSrc().getLineNumber()));
+			try {
+				cursor.next(0, 0);
+				fail("pairs visited backwards");
+			} catch (IllegalStateException expected) {
+			}
+		}
+		assertEquals(List.of(DependencyType.USE + 1, DependencyType.USE + 3, DependencyType.CALL + 2), details);
+		store.close();
+	}
+}
@@ -0,0 +1,62 @@
+package depends.relations;
+
+import depends.deptypes.DependencyType;
+import depends.deptypes.DependencyTypeRegistry;
+import depends.entity.Entity;
+import depends.entity.GenericName;
+import depends.entity.Location;
+import depends.entity.TypeEntity;
+import depends.entity.repo.InMemoryEntityRepo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class RelationStoreTest {
+	@Test
+	public void test_relations_are_kept_in_order() {
+		InMemoryEntityRepo repo = new InMemoryEntityRepo();
+		TypeEntity a = new TypeEntity(GenericName.build("a"), null, repo.generateId());
+		TypeEntity b = new TypeEntity(GenericName.build("b"), null, repo.generateId());
+		TypeEntity c = new TypeEntity(GenericName.build("c"), null, repo.generateId());
+		repo.add(a);
+		repo.add(b);
+		repo.add(c);
+		// not in repo
+		TypeEntity d = new TypeEntity(GenericName.build("d"), null, repo.generateId());
+		Location location = new Location();
+		location.setLine(3);
+		a.addRelation(new Relation(DependencyType.CALL, b, location, false));
+		b.addRelation(new Relation(DependencyType.USE, a, null, false));
+		a.addRelation(new Relation(DependencyType.INHERIT, c, null, true));
+		a.addRelation(new Relation(DependencyType.USE, d, location, false));
+
+		assertEquals(4, repo.getRelationStore().size());
+		ArrayList<Relation> relations = relationsOf(a);
+		assertEquals(3, relations.size());
+		assertEquals(DependencyType.CALL, relations.get(0).getType());
+		assertSame(b, relations.get(0).getEntity());
+		assertEquals(Integer.valueOf(3), relations.get(0).getFromLine());
+		assertSame(c, relations.get(1).getEntity());
+		assertNull(relations.get(1).getFromLine());
+		assertTrue(relations.get(1).possible());
+		assertSame(d, relations.get(2).getEntity());
+		assertEquals(1, relationsOf(b).size());
+		assertTrue(relationsOf(c).isEmpty());
+
+		// same id as b, but not the entity of the repo
+		TypeEntity e = new TypeEntity(GenericName.build("e"), null, b.getId());
+		c.addRelation(new Relation(DependencyType.USE, e, null, false));
+		c.addRelation(new Relation(DependencyType.USE, b, null, false));
+		assertSame(e, relationsOf(c).get(0).getEntity());
+		assertSame(b, relationsOf(c).get(1).getEntity());
+	}
+
+	private static ArrayList<Relation> relationsOf(Entity entity) {
+		ArrayList<Relation> relations = new ArrayList<>();
+		entity.forEachRelation((to, type, line, possible) ->
+				relations.add(new Relation(DependencyTypeRegistry.nameOf(type), to, line, possible)));
+		return relations;
+	}
+}
@@ -0,0 +1,20 @@
+package depends.utils;
+
+import depends.entity.FileEntity;
+import depends.entity.GenericName;
+import depends.entity.TypeEntity;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EntityUtilsTest {
+	@Test
+	public void test_language_is_decided_per_file_by_suffix() {
+		FileEntity javaFile = new FileEntity(false, "/src/A.java", 1);
+		FileEntity kotlinFile = new FileEntity(false, "/src/B.kt", 2);
+		FileEntity cppFile = new FileEntity(false, "/src/c.cpp", 3);
+		assertEquals("Java", EntityUtils.getLanguage(new TypeEntity(GenericName.build("A"), javaFile, 4)));
+		assertEquals("Kotlin", EntityUtils.getLanguage(new TypeEntity(GenericName.build("B"), kotlinFile, 5)));
+		assertEquals(EntityUtils.UNKNOWN_LANGUAGE, EntityUtils.getLanguage(cppFile));
+	}
+}
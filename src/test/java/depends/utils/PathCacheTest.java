@@ -0,0 +1,50 @@
+package depends.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class PathCacheTest {
+	@Test
+	public void test_exist_file_by_directory_listing() throws IOException {
+		Path dir = Files.createTempDirectory("depends-path");
+		Path file = Files.createFile(dir.resolve("a.h"));
+		try {
+			assertTrue(PathCache.existFile(file.toString()));
+			assertTrue(PathCache.existFile(dir + File.separator + "." + File.separator + "a.h"));
+			assertFalse(PathCache.existFile(dir + File.separator + "b.h"));
+			assertFalse(PathCache.existFile(dir + File.separator + "missing" + File.separator + "a.h"));
+			String canonical = PathCache.uniqFilePath(dir + File.separator + "." + File.separator + "a.h");
+			assertEquals(file.toFile().getCanonicalPath(), canonical);
+			assertSame(canonical, PathCache.uniqFilePath(canonical));
+		} finally {
+			Files.delete(file);
+			Files.delete(dir);
+		}
+	}
+
+	@Test
+	public void test_listing_is_authoritative_until_cleared() throws IOException {
+		Path dir = Files.createTempDirectory("depends-path");
+		Path file = dir.resolve("a.h");
+		try {
+			assertFalse(PathCache.existFile(file.toString()));
+			// the listing of the directory is cached without a.h
+			Files.createFile(file);
+			assertFalse(PathCache.existFile(file.toString()));
+			PathCache.clear();
+			assertTrue(PathCache.existFile(file.toString()));
+			// the same answer as the file system, whether it is case-sensitive or not
+			String otherCase = dir + File.separator + "A.h";
+			assertEquals(new File(otherCase).exists(), PathCache.existFile(otherCase));
+		} finally {
+			Files.deleteIfExists(file);
+			Files.delete(dir);
+		}
+	}
+}